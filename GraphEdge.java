@@ -8,12 +8,6 @@ import java.awt.Color;
  *  @author Katherine (Raven) Russell
  */
 class GraphEdge extends GraphComp {
-    /**
-     *  The number of edges created so far (for gerating unique ids
-     *  from the factory method).
-     */
-    public static int edgeCount = 0;
-
     /**
      *  Constructs an edge with a given id.
      *
@@ -28,15 +22,32 @@ class GraphEdge extends GraphComp {
     public String toString() { return ""; }
 
     /**
-     *  Generates a new edge with a random weight and a (probably)
-     *  unique id.
+     *  Ids for the edges made by getFactory(), shared by every such
+     *  factory so two of them never make equal edges.
+     */
+    private static final GraphIdAllocator SHARED_IDS = new GraphIdAllocator();
+
+    /**
+     *  Generates new edges with ids unique among all the edges made by
+     *  factories from this method.
      *
-     *  @return a new edge with a random weight
+     *  @return an edge factory
      */
     public static Factory<GraphEdge> getFactory() {
+        return getFactory(SHARED_IDS);
+    }
+
+    /**
+     *  Generates new edges with ids from an allocator, normally the one
+     *  of the graph the edges go into (see ThreeTenGraph.getEdgeIds).
+     *
+     *  @param ids where to get the ids
+     *  @return an edge factory
+     */
+    public static Factory<GraphEdge> getFactory(GraphIdAllocator ids) {
         return new Factory<GraphEdge> () {
             public GraphEdge create() {
-                return new GraphEdge(edgeCount++);
+                return new GraphEdge(ids.allocate());
             }
         };
     }
@@ -0,0 +1,189 @@
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *  Hands out unique, non-negative ids for the nodes or the edges of one
+ *  graph (share one allocator between the graph and its node or edge
+ *  factory). Safe to use from several threads at once.
+ *
+ *  <p>By default an id is never handed out twice. A recycling allocator
+ *  hands ids given back with release out again before new ones, so the
+ *  id tables of a graph that is edited a lot stay small. Only use one
+ *  when nothing still holds removed nodes or edges: GraphComp equality
+ *  goes by id, so a new node with a recycled id equals the removed one
+ *  in a JUNG Layout map or a picked-state set that still has it.
+ */
+class GraphIdAllocator {
+    /**
+     *  The smallest id that has never been handed out.
+     */
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     *  Whether released ids are handed out again.
+     */
+    private final boolean recycle;
+
+    /**
+     *  Ids given back (a stack). An entry whose bit in isFree is clear
+     *  was claimed since, and is skipped when popped.
+     */
+    private int[] free = new int[8];
+
+    /**
+     *  The number of entries in free. Written only while holding the lock
+     *  on this allocator, read without it as a quick emptiness check.
+     */
+    private volatile int freeCount = 0;
+
+    /**
+     *  The ids that are free to hand out again, so claim is a bit test
+     *  instead of a search of the stack.
+     */
+    private final BitSet isFree = new BitSet();
+
+    /**
+     *  Makes an allocator that never hands out an id twice.
+     */
+    public GraphIdAllocator() {
+        this(false);
+    }
+
+    /**
+     *  Makes an allocator.
+     *
+     *  @param recycle true to hand released ids out again (see the class
+     *      comment for when that is safe)
+     */
+    public GraphIdAllocator(boolean recycle) {
+        this.recycle = recycle;
+    }
+
+    /**
+     *  Returns an id that is not in use.
+     *
+     *  @return the id
+     */
+    public int allocate() {
+        if(freeCount > 0) {
+            synchronized(this) {
+                while(freeCount > 0) {
+                    int id = free[--freeCount];
+                    if(isFree.get(id)) {
+                        isFree.clear(id);
+                        return id;
+                    }
+                }
+            }
+        }
+        return next.getAndIncrement();
+    }
+
+    /**
+     *  Gives back an id that is no longer used. A recycling allocator
+     *  hands it out again; otherwise this does nothing.
+     *
+     *  @param id the id
+     */
+    public synchronized void release(int id) {
+        if(!recycle || id < 0 || id >= next.get() || isFree.get(id)) {
+            return;
+        }
+        if(freeCount == free.length) {
+            free = Arrays.copyOf(free, 2 * freeCount);
+        }
+        free[freeCount++] = id;
+        isFree.set(id);
+    }
+
+    /**
+     *  Marks an id as in use that was chosen by someone else (for example
+     *  a node made with new GraphNode(id)), so it will not be handed out.
+     *
+     *  @param id the id
+     */
+    public void claim(int id) {
+        int current = next.get();
+        while(id >= current) {
+            if(next.compareAndSet(current, id + 1)) {
+                return;
+            }
+            current = next.get();
+        }
+        if(freeCount > 0) {
+            synchronized(this) {
+                isFree.clear(id);
+            }
+        }
+    }
+
+    /**
+     *  Main method that checks recycling and concurrent allocation.
+     *
+     *  @param args command line arguments
+     *  @throws InterruptedException if interrupted while waiting for threads
+     */
+    public static void main(String[] args) throws InterruptedException {
+        GraphIdAllocator ids = new GraphIdAllocator(true);
+        int a = ids.allocate();
+        int b = ids.allocate();
+        ids.release(a);
+        ids.claim(10);
+        int c = ids.allocate();
+        int d = ids.allocate();
+        ids.release(5);
+        ids.claim(5);
+        if(a == 0 && b == 1 && c == 0 && d == 11 && ids.allocate() == 12) {
+            System.out.println("Yay 1");
+        }
+
+        GraphIdAllocator shared = new GraphIdAllocator(true);
+        boolean[] seen = new boolean[40000];
+        Thread[] threads = new Thread[4];
+        int[][] got = new int[threads.length][10000];
+        for(int t = 0; t < threads.length; t++) {
+            final int[] mine = got[t];
+            threads[t] = new Thread(() -> {
+                for(int i = 0; i < mine.length; i++) {
+                    mine[i] = shared.allocate();
+                    if(i % 3 == 0) {
+                        shared.release(mine[i]);
+                        mine[i] = shared.allocate();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        boolean unique = true;
+        for(int t = 0; t < threads.length; t++) {
+            threads[t].join();
+            for(int id : got[t]) {
+                unique &= id < seen.length && !seen[id];
+                if(id < seen.length) seen[id] = true;
+            }
+        }
+        if(unique) {
+            System.out.println("Yay 2");
+        }
+
+        //claiming stays cheap with a long free list (a cleared and rebuilt graph)
+        GraphIdAllocator rebuilt = new GraphIdAllocator(true);
+        int count = 200000;
+        for(int i = 0; i < count; i++) {
+            rebuilt.allocate();
+        }
+        for(int i = 0; i < count; i++) {
+            rebuilt.release(i);
+        }
+        for(int i = 0; i < count; i++) {
+            rebuilt.claim(i);
+        }
+        GraphIdAllocator plain = new GraphIdAllocator();
+        int first = plain.allocate();
+        plain.release(first);
+        if(rebuilt.allocate() == count && plain.allocate() != first) {
+            System.out.println("Yay 3");
+        }
+    }
+}
\ No newline at end of file
@@ -2,18 +2,14 @@ import org.apache.commons.collections15.Factory;
 
 import java.awt.Color;
 
+import java.util.Arrays;
+
 /**
  *  A node representation for the graph simulation.
  *
  *  @author Katherine (Raven) Russell
  */
 class GraphNode extends GraphComp {
-    /**
-     *  The number of nodes created so far (for gerating unique ids
-     *  from the factory method).
-     */
-    public static int nodeCount = 0;
-
     /**
      *  The boolean flag to indicate whether a node is active or not.
      *  Used to support certain graph algorithms.
@@ -27,12 +23,23 @@ class GraphNode extends GraphComp {
     private int cost;
 
     /**
-     *  The byte used as 8 boolean bits used to support graph coloring algorithms.
-     *  Assume no more than 8 possible color and they are defined in ThreeTenColor.COLORS.
-     *  nbrColorFlag[i] == 1: this node has a nbr taking color ThreeTenColor.COLORS[i]
-     *  nbrColorFlag[i] == 0: this node has no nbr taking color ThreeTenColor.COLORS[i]
+     *  A bit set used to support graph coloring algorithms, one bit per
+     *  color index (see ThreeTenPalette); null until a bit is set.
+     *  bit i == 1: this node has a nbr taking color index i
+     *  bit i == 0: this node has no nbr taking color index i
+     */
+    private long[] nbrColors;
+
+    /**
+     *  The column store holding this node's values while an algorithm
+     *  runs (null if the node keeps them in its own fields).
+     */
+    private GraphNodeAttributes attributes = null;
+
+    /**
+     *  This node's slot in attributes.
      */
-    private byte nbrColors;
+    private int slot;
 
     /**
      *  Constructs a node with a given id.
@@ -43,73 +50,136 @@ class GraphNode extends GraphComp {
         this.id = id; this.color = Color.WHITE;
         this.active = false;
         this.cost = 0;
-        this.nbrColors = 0;
+        this.nbrColors = null;
+    }
+
+    /**
+     *  Makes this node keep its values in a column store from now on.
+     *  Called by GraphNodeAttributes.bind, which copies the values over.
+     *
+     *  @param attributes the store
+     *  @param slot this node's slot in it
+     */
+    void bind(GraphNodeAttributes attributes, int slot) {
+        this.attributes = attributes;
+        this.slot = slot;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public Color getColor() {
+        return (attributes == null) ? color : attributes.getColor(slot);
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public void setColor(Color color) {
+        if(attributes == null) this.color = color;
+        else attributes.setColor(slot, color);
     }
 
     /**
      *  Set this node to be active.
      */
-    public void setActive(){ active = true; }
+    public void setActive(){
+        if(attributes == null) active = true;
+        else attributes.setActive(slot, true);
+    }
 
     /**
      *  Set this node to be inactive.
      */
-    public void unsetActive(){ active = false; }
+    public void unsetActive(){
+        if(attributes == null) active = false;
+        else attributes.setActive(slot, false);
+    }
 
     /**
      *  Report the active status of this node.
      *  @return whether this node is active or not
      */
-    public boolean isActive() {return active; }
+    public boolean isActive() {
+        return (attributes == null) ? active : attributes.isActive(slot);
+    }
 
     /**
      *  Set the cost of this node to be the incoming value.
      *
      *  @param cost the cost to set for this node
      */
-    public void setCost(int cost) { this.cost = cost; }
+    public void setCost(int cost) {
+        if(attributes == null) this.cost = cost;
+        else attributes.setCost(slot, cost);
+    }
 
     /**
      *  Report the cost of this node.
      *  @return the cost of this node
      */
-    public int getCost() { return this.cost; }
+    public int getCost() {
+        return (attributes == null) ? this.cost : attributes.getCost(slot);
+    }
 
     /**
      *  Clear the information about the colors of neighbor nodes.
-     *  Set all 8 bits to be 0.
+     *  Set all bits to be 0.
      */
     public void clearNbrColors(){
-        nbrColors = 0;
+        if(attributes == null) nbrColors = null;
+        else attributes.clearNbrColors(slot);
     }
 
     /**
-     *  One neighbor of this node has been assigned color ThreeTenColor.COLORS[index].
+     *  One neighbor of this node has been assigned color index index.
      *  Update the record of nbrColors of this node based on this color assignment.
      *
      *  @param index the color index assigned to one neighbor
      *  @return return false if invalid index; return true otherwise
      */
     public boolean setNbrColor(int index){
-        if (index<0 || index>=ThreeTenColor.COLORS.length)
+        if (index<0)
             return false;
 
-        nbrColors = (byte) (nbrColors | (1<<index));
+        if(attributes != null) {
+            attributes.addNbrColor(slot, index);
+        }
+        else {
+            if(nbrColors == null || nbrColors.length <= (index >>> 6))
+                nbrColors = (nbrColors == null) ? new long[(index >>> 6) + 1] : Arrays.copyOf(nbrColors, (index >>> 6) + 1);
+            nbrColors[index >>> 6] |= 1L << index;
+        }
         return true;
     }
 
     /**
      *  Report whether this node has any neighbor with the color
-     *  defined as ThreeTenColor.COLORS[index].
+     *  index index.
      *
      *  @param index the color index
      *  @return return true if there is a neighbor of this node taken the color; false otherwise
      */
     public boolean nbrHasColor(int index){
-        if (index<0 || index>=ThreeTenColor.COLORS.length)
+        if (index<0)
             throw new IllegalArgumentException("Invalid color index.");
 
-        return (((nbrColors>>index) & 1) != 0);
+        if(attributes != null)
+            return attributes.hasNbrColor(slot, index);
+        return nbrColors != null && (index >>> 6) < nbrColors.length && ((nbrColors[index >>> 6] >>> index) & 1) != 0;
+    }
+
+    /**
+     *  Returns a bound on the color indexes recorded in nbrColors.
+     *
+     *  @return every index with nbrHasColor true is below this
+     */
+    int nbrColorLimit() {
+        if(attributes != null)
+            return attributes.nbrColorLimit(slot);
+        return (nbrColors == null) ? 0 : 64 * nbrColors.length;
     }
 
 
@@ -122,8 +192,10 @@ class GraphNode extends GraphComp {
             return super.compareTo(n);
         }
         GraphNode node = (GraphNode) n;
-        if (this.cost!=node.cost)
-            return node.cost - this.cost;
+        int cost = getCost();
+        int other = node.getCost();
+        if (cost!=other)
+            return other - cost;
         else
             return this.id-n.id; //use id to break the tie
     }
@@ -134,18 +206,36 @@ class GraphNode extends GraphComp {
      */
     @Override
     public String toString() {
-        return "" + id + (active ? ":"+cost : "");
+        return "" + id + (isActive() ? ":"+getCost() : "");
     }
 
     /**
-     *  Generates a new node with a (probably) unique id.
+     *  Ids for the nodes made by getFactory(), shared by every such
+     *  factory so two of them never make equal nodes.
+     */
+    private static final GraphIdAllocator SHARED_IDS = new GraphIdAllocator();
+
+    /**
+     *  Generates new nodes with ids unique among all the nodes made by
+     *  factories from this method.
      *
-     *  @return a new node
+     *  @return a node factory
      */
     public static Factory<GraphNode> getFactory() {
+        return getFactory(SHARED_IDS);
+    }
+
+    /**
+     *  Generates new nodes with ids from an allocator, normally the one
+     *  of the graph the nodes go into (see ThreeTenGraph.getNodeIds).
+     *
+     *  @param ids where to get the ids
+     *  @return a node factory
+     */
+    public static Factory<GraphNode> getFactory(GraphIdAllocator ids) {
         return new Factory<GraphNode> () {
             public GraphNode create() {
-                return new GraphNode(nodeCount++);
+                return new GraphNode(ids.allocate());
             }
         };
     }
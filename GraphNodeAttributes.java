@@ -0,0 +1,323 @@
+import java.awt.Color;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ *  Column storage for the per-node values the coloring algorithm uses
+ *  (cost, active flag, neighbor-color mask and color), one array per
+ *  value, indexed by a slot number. The algorithm loops run over these
+ *  arrays instead of visiting one GraphNode object per vertex.
+ *
+ *  <p>A node bound to a slot (see bind) reads and writes its values here,
+ *  so the GUI keeps working through the usual GraphNode getters.
+ *
+ *  <p>A palette color (see ThreeTenPalette) is stored as its color
+ *  index. Any other color is stored as a negative code into a small
+ *  table of the other colors seen so far.
+ *
+ *  <p>The neighbor colors of a slot are a bit set over color indexes.
+ *  The first 64 bits sit in one long per slot. Slots that need more
+ *  colors get an extra array of words, so the common case stays flat.
+ */
+class GraphNodeAttributes {
+    /**
+     *  The cost of each slot.
+     */
+    private final int[] cost;
+
+    /**
+     *  Bit set of active slots.
+     */
+    private final long[] active;
+
+    /**
+     *  Bit i of nbrColors[v] is set when a neighbor of v has color index i (i below 64).
+     */
+    private final long[] nbrColors;
+
+    /**
+     *  The rest of each slot's neighbor colors: bit i of word w of
+     *  moreNbrColors[v] stands for color index 64*(w+1)+i. Null until needed.
+     */
+    private final long[][] moreNbrColors;
+
+    /**
+     *  The color of each slot: a palette index (0 or more), NO_COLOR for
+     *  null, or -2-i for otherColors[i].
+     */
+    private final short[] color;
+
+    /**
+     *  Marks a slot whose color is null.
+     */
+    private static final short NO_COLOR = -1;
+
+    /**
+     *  The distinct non-palette colors used so far.
+     */
+    private final ArrayList<Color> otherColors = new ArrayList<>();
+
+    /**
+     *  Reverse of otherColors.
+     */
+    private final HashMap<Color, Short> otherIndex = new HashMap<>();
+
+    /**
+     *  Makes a store with a fixed number of slots.
+     *
+     *  @param size the number of slots
+     */
+    public GraphNodeAttributes(int size) {
+        cost = new int[size];
+        active = new long[(size + 63) >>> 6];
+        nbrColors = new long[size];
+        moreNbrColors = new long[size][];
+        color = new short[size];
+    }
+
+    /**
+     *  Returns the number of slots.
+     *
+     *  @return the number of slots
+     */
+    public int size() {
+        return cost.length;
+    }
+
+    /**
+     *  Moves a node's current values into a slot and makes the node read
+     *  and write them there from now on.
+     *
+     *  @param node the node to bind
+     *  @param v the slot to give it
+     */
+    public void bind(GraphNode node, int v) {
+        cost[v] = node.getCost();
+        setActive(v, node.isActive());
+        clearNbrColors(v);
+        for(int i = 0, limit = node.nbrColorLimit(); i < limit; i++) {
+            if(node.nbrHasColor(i)) addNbrColor(v, i);
+        }
+        setColor(v, node.getColor());
+        node.bind(this, v);
+    }
+
+    /**
+     *  Returns the code a color is stored as, adding it to the table of
+     *  other colors if it is new.
+     *
+     *  @param c the color
+     *  @return its code
+     */
+    private short encode(Color c) {
+        if(c == null) {
+            return NO_COLOR;
+        }
+        int palette = ThreeTenPalette.indexOf(c);
+        if(palette >= 0 && palette <= Short.MAX_VALUE) {
+            return (short) palette;
+        }
+        Short index = otherIndex.get(c);
+        if(index == null) {
+            if(otherColors.size() == Short.MAX_VALUE - 1) {
+                throw new IllegalStateException("too many distinct colors");
+            }
+            index = (short) otherColors.size();
+            otherColors.add(c);
+            otherIndex.put(c, index);
+        }
+        return (short) (-2 - index);
+    }
+
+    /**
+     *  Returns the cost of a slot.
+     *
+     *  @param v the slot
+     *  @return the cost
+     */
+    public int getCost(int v) { return cost[v]; }
+
+    /**
+     *  Sets the cost of a slot.
+     *
+     *  @param v the slot
+     *  @param value the cost
+     */
+    public void setCost(int v, int value) { cost[v] = value; }
+
+    /**
+     *  Reports whether a slot is active.
+     *
+     *  @param v the slot
+     *  @return whether it is active
+     */
+    public boolean isActive(int v) { return (active[v >>> 6] & (1L << v)) != 0; }
+
+    /**
+     *  Sets or clears the active flag of a slot.
+     *
+     *  @param v the slot
+     *  @param on whether it should be active
+     */
+    public void setActive(int v, boolean on) {
+        if(on) active[v >>> 6] |= 1L << v;
+        else active[v >>> 6] &= ~(1L << v);
+    }
+
+    /**
+     *  Records that a neighbor of a slot has a color.
+     *
+     *  @param v the slot
+     *  @param index the color index
+     */
+    public void addNbrColor(int v, int index) {
+        if(index < 64) {
+            nbrColors[v] |= 1L << index;
+            return;
+        }
+        int w = (index >>> 6) - 1;
+        long[] more = moreNbrColors[v];
+        if(more == null || more.length <= w) {
+            more = moreNbrColors[v] = (more == null) ? new long[w + 1] : Arrays.copyOf(more, Math.max(w + 1, 2 * more.length));
+        }
+        more[w] |= 1L << index;
+    }
+
+    /**
+     *  Reports whether a neighbor of a slot has a color.
+     *
+     *  @param v the slot
+     *  @param index the color index
+     *  @return true if the bit for that color is set
+     */
+    public boolean hasNbrColor(int v, int index) {
+        if(index < 64) {
+            return ((nbrColors[v] >>> index) & 1) != 0;
+        }
+        int w = (index >>> 6) - 1;
+        long[] more = moreNbrColors[v];
+        return more != null && w < more.length && ((more[w] >>> index) & 1) != 0;
+    }
+
+    /**
+     *  Returns the lowest color index no neighbor of a slot has.
+     *
+     *  @param v the slot
+     *  @return the first free color index
+     */
+    public int firstFreeColor(int v) {
+        long low = ~nbrColors[v];
+        if(low != 0) {
+            return Long.numberOfTrailingZeros(low);
+        }
+        long[] more = moreNbrColors[v];
+        int w = 0;
+        while(more != null && w < more.length && more[w] == -1L) {
+            w++;
+        }
+        long word = (more == null || w == more.length) ? 0 : more[w];
+        return 64 * (w + 1) + Long.numberOfTrailingZeros(~word);
+    }
+
+    /**
+     *  Returns a bound on the neighbor colors recorded for a slot.
+     *
+     *  @param v the slot
+     *  @return every index with hasNbrColor true is below this
+     */
+    public int nbrColorLimit(int v) {
+        return 64 * (1 + ((moreNbrColors[v] == null) ? 0 : moreNbrColors[v].length));
+    }
+
+    /**
+     *  Forgets the neighbor colors of a slot.
+     *
+     *  @param v the slot
+     */
+    public void clearNbrColors(int v) {
+        nbrColors[v] = 0;
+        moreNbrColors[v] = null;
+    }
+
+    /**
+     *  Returns the palette index of a slot's color.
+     *
+     *  @param v the slot
+     *  @return the color index, or -1 if the color is not a palette color
+     */
+    public int getColorIndex(int v) { return (color[v] >= 0) ? color[v] : -1; }
+
+    /**
+     *  Sets a slot to a palette color.
+     *
+     *  @param v the slot
+     *  @param index the color index
+     */
+    public void setColorIndex(int v, int index) {
+        if(index > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("color index too large: " + index);
+        }
+        color[v] = (short) index;
+    }
+
+    /**
+     *  Returns the color of a slot.
+     *
+     *  @param v the slot
+     *  @return the color
+     */
+    public Color getColor(int v) {
+        short code = color[v];
+        if(code >= 0) return ThreeTenPalette.color(code);
+        return (code == NO_COLOR) ? null : otherColors.get(-2 - code);
+    }
+
+    /**
+     *  Sets the color of a slot.
+     *
+     *  @param v the slot
+     *  @param c the color
+     */
+    public void setColor(int v, Color c) { color[v] = encode(c); }
+
+    /**
+     *  Main method that checks binding and the column accessors.
+     *
+     *  @param args command line arguments
+     */
+    public static void main(String[] args) {
+        GraphNode a = new GraphNode(7);
+        a.setCost(3);
+        a.setActive();
+        a.setNbrColor(2);
+        GraphNodeAttributes attrs = new GraphNodeAttributes(100);
+        attrs.bind(a, 70);
+
+        if(attrs.getCost(70) == 3 && attrs.isActive(70) && attrs.hasNbrColor(70, 2) && attrs.firstFreeColor(70) == 0
+            && attrs.getColor(70).equals(Color.WHITE) && attrs.getColorIndex(70) == -1 && !attrs.isActive(69)) {
+            System.out.println("Yay 1");
+        }
+
+        attrs.setCost(70, 9);
+        attrs.setActive(70, false);
+        attrs.setColor(70, ThreeTenColor.COLORS[5]);
+        a.setNbrColor(1);
+        if(a.getCost() == 9 && !a.isActive() && a.getColor() == ThreeTenColor.COLORS[5]
+            && attrs.getColorIndex(70) == 5 && a.nbrHasColor(1) && !a.nbrHasColor(3)) {
+            System.out.println("Yay 2");
+        }
+
+        for(int i = 0; i < 300; i++) {
+            if(i != 200) attrs.addNbrColor(3, i);
+        }
+        int gap = attrs.firstFreeColor(3);
+        attrs.addNbrColor(3, 200);
+        attrs.setColorIndex(4, 299);
+        if(gap == 200 && attrs.firstFreeColor(3) == 300 && attrs.hasNbrColor(3, 255) && !attrs.hasNbrColor(3, 900)
+            && attrs.getColor(4).equals(ThreeTenPalette.color(299))) {
+            System.out.println("Yay 3");
+        }
+    }
+}
\ No newline at end of file
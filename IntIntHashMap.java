@@ -0,0 +1,188 @@
+import java.util.Arrays;
+
+/**
+ *  A small open-addressing hash map from non-negative int keys to int
+ *  values, with no boxing. Uses linear probing and backward-shift
+ *  deletion, so there are no tombstones and lookups stay short.
+ */
+class IntIntHashMap {
+    /**
+     *  Marks an empty slot in the key array (keys are never negative).
+     */
+    private static final int EMPTY = -1;
+
+    /**
+     *  The smallest table size.
+     */
+    private static final int MIN_CAPACITY = 8;
+
+    /**
+     *  The keys, EMPTY where a slot is free. Length is a power of two.
+     */
+    private int[] keys;
+
+    /**
+     *  The values, parallel to keys.
+     */
+    private int[] values;
+
+    /**
+     *  The number of keys in the map.
+     */
+    private int size;
+
+    /**
+     *  Constructs a map sized to hold the expected number of keys
+     *  without resizing.
+     *
+     *  @param expected the number of keys expected
+     */
+    public IntIntHashMap(int expected) {
+        int capacity = MIN_CAPACITY;
+        while(capacity < expected * 2) {
+            capacity *= 2;
+        }
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     *  Returns the number of keys in the map.
+     *
+     *  @return the number of keys in the map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     *  Returns the home slot of a key.
+     *
+     *  @param key the key
+     *  @return the slot the key hashes to
+     */
+    private int slot(int key) {
+        return (key * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(keys.length));
+    }
+
+    /**
+     *  Returns the value stored for a key.
+     *
+     *  @param key the key to look up
+     *  @return the value, or -1 if the key is not in the map
+     */
+    public int get(int key) {
+        int mask = keys.length - 1;
+        for(int i = slot(key); keys[i] != EMPTY; i = (i + 1) & mask) {
+            if(keys[i] == key) {
+                return values[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     *  Stores a value for a key, replacing any value already there.
+     *
+     *  @param key the key (must not be negative)
+     *  @param value the value
+     */
+    public void put(int key, int value) {
+        if((size + 1) * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int i = slot(key);
+        for(; keys[i] != EMPTY; i = (i + 1) & mask) {
+            if(keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+    }
+
+    /**
+     *  Removes a key from the map.
+     *
+     *  @param key the key to remove
+     *  @return true if the key was in the map
+     */
+    public boolean remove(int key) {
+        int mask = keys.length - 1;
+        int i = slot(key);
+        while(keys[i] != key) {
+            if(keys[i] == EMPTY) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+
+        //shift later entries of the probe run back into the hole
+        int hole = i;
+        for(int j = (hole + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+            int home = slot(keys[j]);
+            if(((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        keys[hole] = EMPTY;
+        size--;
+        return true;
+    }
+
+    /**
+     *  Moves every entry into a table of a new size.
+     *
+     *  @param capacity the new table size (a power of two)
+     */
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        for(int i = 0; i < oldKeys.length; i++) {
+            if(oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    /**
+     *  Main method that checks the map against java.util.HashMap.
+     *
+     *  @param args command line arguments
+     */
+    public static void main(String[] args) {
+        java.util.Random rand = new java.util.Random(0);
+        java.util.HashMap<Integer, Integer> expected = new java.util.HashMap<>();
+        IntIntHashMap map = new IntIntHashMap(0);
+
+        boolean same = true;
+        for(int i = 0; i < 100000; i++) {
+            int key = rand.nextInt(500);
+            if(rand.nextInt(3) == 0) {
+                same &= (map.remove(key) == (expected.remove(key) != null));
+            }
+            else {
+                map.put(key, i);
+                expected.put(key, i);
+            }
+            same &= (map.get(key) == expected.getOrDefault(key, -1));
+        }
+        for(int key = 0; key < 500; key++) {
+            same &= (map.get(key) == expected.getOrDefault(key, -1));
+        }
+
+        if(same && map.size() == expected.size()) {
+            System.out.println("Yay 1");
+        }
+    }
+}
\ No newline at end of file
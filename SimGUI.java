@@ -44,6 +44,7 @@ import javax.swing.JButton;
 import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
+import javax.swing.SwingUtilities;
 
 /**
  *  GUI for graph interactions.
@@ -66,6 +67,16 @@ class SimGUI {
      */
     private Graph<GraphNode, GraphEdge> graph = null;
 
+    /**
+     *  Node ids for the current graph, shared by the generator and the mouse.
+     */
+    private GraphIdAllocator nodeIds = null;
+
+    /**
+     *  Edge ids for the current graph, shared by the generator and the mouse.
+     */
+    private GraphIdAllocator edgeIds = null;
+
     /**
      *  The panel containing the graph display.
      */
@@ -99,6 +110,11 @@ class SimGUI {
      */
     private boolean playing = false;
 
+    /**
+     *  Whether a restart of the run for graph edits is already queued.
+     */
+    private boolean restartQueued = false;
+
     /**
      *  The seed to use for the random number generator
      *  associated with the algorithm simulation.
@@ -257,7 +273,7 @@ class SimGUI {
         );
 
         //Add user interactions
-        gm = new EditingModalGraphMouse<>(context, GraphNode.getFactory(), GraphEdge.getFactory());
+        gm = new EditingModalGraphMouse<>(context, GraphNode.getFactory(nodeIds), GraphEdge.getFactory(edgeIds));
         gm.setMode(ModalGraphMouse.Mode.EDITING);
         visServer.setGraphMouse(gm);
 
@@ -371,15 +387,15 @@ class SimGUI {
     }
 
     /**
-     *  Generates a new graph, resetting all the appropriate static variables
-     *  for nodes and edges.
+     *  Generates a new graph with fresh id allocators for its nodes and
+     *  edges, wrapped in a ThreeTenConcurrentGraph.
      */
     public void genGraph() {
-        GraphNode.nodeCount = 0;
-        GraphEdge.edgeCount = 0;
+        nodeIds = new GraphIdAllocator();
+        edgeIds = new GraphIdAllocator();
 
-        Factory<GraphNode> nodeFactory = GraphNode.getFactory();
-        Factory<GraphEdge> edgeFactory = GraphEdge.getFactory();
+        Factory<GraphNode> nodeFactory = GraphNode.getFactory(nodeIds);
+        Factory<GraphEdge> edgeFactory = GraphEdge.getFactory(edgeIds);
 
         if(alg.graphEdgeType() == EdgeType.DIRECTED) {
 			     /*
@@ -399,15 +415,71 @@ class SimGUI {
         }
         else {
             ErdosRenyiGenerator<GraphNode, GraphEdge> gen = new ErdosRenyiGenerator<>(
-                    ThreeTenGraph.<GraphNode,GraphEdge>getFactory(),
+                    ThreeTenGraph.<GraphNode,GraphEdge>getFactory(nodeIds, edgeIds),
                     nodeFactory, edgeFactory,
                     this.numNodes,this.prob
             );
             gen.setSeed(this.rand.nextInt());
-            graph = gen.create();
+
+            //mouse edits and the algorithm go through the lock, so a run
+            //always freezes a whole version of the graph
+            ThreeTenConcurrentGraph shared = new ThreeTenConcurrentGraph((ThreeTenGraph) gen.create());
+            shared.addListener(this::graphEdited);
+            graph = shared;
         }
     }
 
+    /**
+     *  Called for each change a mouse edit makes to the graph. The layout
+     *  already knows about the change. Before a run only the added vertex
+     *  or edge needs its starting color. A run in progress works on a
+     *  frozen copy of the old graph, so it has to start over on the
+     *  edited one; one edit can send several events (removing a vertex
+     *  sends one per edge first, all with the same version), so the
+     *  restart is queued once and runs after the edit is done.
+     *
+     *  @param event what changed
+     */
+    private void graphEdited(ThreeTenGraphEvent event) {
+        if(!alg.isStarted()) {
+            if(event.getType() == ThreeTenGraphEvent.Type.VERTEX_ADDED) {
+                event.getVertex().setColor(ThreeTenColor.COLOR_NONE_NODE);
+            }
+            else if(event.getType() == ThreeTenGraphEvent.Type.EDGE_ADDED) {
+                event.getEdge().setColor(ThreeTenColor.COLOR_NONE_EDGE);
+            }
+        }
+        else if(!restartQueued) {
+            restartQueued = true;
+            SwingUtilities.invokeLater(this::restartRun);
+        }
+        if(sidePanel != null) sidePanel.repaint();
+        if(topPanel != null) topPanel.repaint();
+    }
+
+    /**
+     *  Clears what a run left on the graph and starts the algorithm over
+     *  on the edited graph, once for all the events graphEdited queued it for.
+     */
+    private void restartRun() {
+        restartQueued = false;
+        if(!alg.isStarted()) {
+            return;
+        }
+        for(GraphNode v : graph.getVertices()) {
+            v.setColor(ThreeTenColor.COLOR_NONE_NODE);
+            v.unsetActive();
+            v.clearNbrColors();
+        }
+        for(GraphEdge e : graph.getEdges()) {
+            e.setColor(ThreeTenColor.COLOR_NONE_EDGE);
+        }
+        alg.reset(graph);
+        if(visServer != null) visServer.repaint();
+        if(sidePanel != null) sidePanel.repaint();
+        if(topPanel != null) topPanel.repaint();
+    }
+
     /**
      *  Load a new simulation.
      */
@@ -474,12 +546,12 @@ class SimGUI {
                 g2.drawString("Stack (top)", 0, shiftAmount);
                 int i = 2;
 
-                if(ttc.stack != null) {
-                    for(GraphNode node : ttc.stack) {
+                if(ttc.isStarted()) {
+                    for(GraphNode node : ttc.stackPreview(maxDisplay)) {
                         g2.drawString(""+node.getId(), 0, i*shiftAmount);
-                        if(++i > maxDisplay+1) break;
+                        i++;
                     }
-                    if(ttc.stack.size() > maxDisplay) {
+                    if(ttc.stackSize() > maxDisplay) {
                         g2.drawString("...", 0, i++*shiftAmount);
                         g2.drawString("...", 0, i++*shiftAmount);
                     }
@@ -519,14 +591,12 @@ class SimGUI {
 
                 int shiftAmount = 20;
                 int maxDisplay = 7;
-                int i = 0;
 
-                if(ttc.queue != null) {
-                    for(GraphNode node : ttc.queue) {
+                if(ttc.isStarted()) {
+                    for(GraphNode node : ttc.queuePreview(maxDisplay + 2)) {
                         sb.append(String.format(" %3d(c:%3d)",node.getId(),node.getCost()));
-                        if(i++ > maxDisplay) break;
                     }
-                    if(ttc.queue.size() > maxDisplay) {
+                    if(ttc.queueSize() > maxDisplay) {
                         sb.append(" ...");
                     }
                 }
@@ -0,0 +1,506 @@
+import edu.uci.ics.jung.graph.Graph;
+import edu.uci.ics.jung.graph.UndirectedGraph;
+
+import edu.uci.ics.jung.graph.util.Pair;
+import edu.uci.ics.jung.graph.util.EdgeType;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.LinkedList;
+
+/**
+ *  A read-only undirected graph whose vertices and edges are addressed
+ *  internally by small integer indexes. Subclasses only provide the
+ *  index-based storage; this class provides the rest of the
+ *  Graph contract on top of it.
+ *
+ *  <p>Vertex indexes run from 0 to getVertexCount()-1 and edge indexes
+ *  from 0 to getEdgeCount()-1 unless a subclass says otherwise.
+ *  All mutators throw UnsupportedOperationException.
+ */
+abstract class ThreeTenAbstractGraph implements Graph<GraphNode,GraphEdge>, UndirectedGraph<GraphNode,GraphEdge>, ThreeTenAdjacency {
+    /**
+     *  Cached read-only view of the vertices.
+     */
+    private Collection<GraphNode> vertexView = null;
+
+    /**
+     *  Cached read-only view of the edges.
+     */
+    private Collection<GraphEdge> edgeView = null;
+
+    /**
+     *  Returns the vertex stored at an index.
+     *
+     *  @param v the vertex index
+     *  @return the vertex at that index
+     */
+    public abstract GraphNode getVertex(int v);
+
+    /**
+     *  Returns the edge stored at an index.
+     *
+     *  @param e the edge index
+     *  @return the edge at that index
+     */
+    public abstract GraphEdge getEdge(int e);
+
+    /**
+     *  Returns the index of a vertex.
+     *
+     *  @param vertex the vertex to look up
+     *  @return the index of the vertex, or -1 if it is not in this graph
+     */
+    public abstract int indexOf(GraphNode vertex);
+
+    /**
+     *  Returns the index of an edge.
+     *
+     *  @param edge the edge to look up
+     *  @return the index of the edge, or -1 if it is not in this graph
+     */
+    public abstract int indexOf(GraphEdge edge);
+
+    /**
+     *  Returns the number of neighbor entries of a vertex.
+     *
+     *  @param v the vertex index
+     *  @return the degree of the vertex
+     */
+    public abstract int degree(int v);
+
+    /**
+     *  Returns the i-th neighbor of a vertex.
+     *
+     *  @param v the vertex index
+     *  @param i the position in the neighbor list, 0 to degree(v)-1
+     *  @return the index of the neighbor
+     */
+    public abstract int neighborAt(int v, int i);
+
+    /**
+     *  Returns the edge connecting a vertex to its i-th neighbor.
+     *
+     *  @param v the vertex index
+     *  @param i the position in the neighbor list, 0 to degree(v)-1
+     *  @return the index of the edge
+     */
+    public abstract int edgeAt(int v, int i);
+
+    /**
+     *  Returns the first endpoint of an edge.
+     *
+     *  @param e the edge index
+     *  @return the index of the first endpoint
+     */
+    public abstract int firstEnd(int e);
+
+    /**
+     *  Returns the second endpoint of an edge.
+     *
+     *  @param e the edge index
+     *  @return the index of the second endpoint
+     */
+    public abstract int secondEnd(int e);
+
+    /**
+     *  Returns the id of the vertex at an index. Subclasses that create
+     *  their GraphNode objects on demand should override this to read
+     *  the id without making the node.
+     *
+     *  @param v the vertex index
+     *  @return the id of the vertex
+     */
+    public int vertexId(int v) {
+        return getVertex(v).id;
+    }
+
+    /**
+     *  Tells whether the GraphNode and GraphEdge objects already exist,
+     *  so getVertex and getEdge create nothing. True unless a subclass
+     *  says otherwise.
+     *
+     *  @return true if the objects are held by this graph
+     */
+    public boolean holdsObjects() {
+        return true;
+    }
+
+    /**
+     *  Tells whether the vertex and edge indexes run from 0 to the
+     *  counts minus one. True unless a subclass says otherwise.
+     *
+     *  @return true if every index below the counts is in use
+     */
+    public boolean hasDenseIndexes() {
+        return true;
+    }
+
+    /**
+     *  Returns an edge connecting two vertices by scanning the shorter
+     *  of the two neighbor lists. Subclasses with sorted or hashed
+     *  neighbor lists should override this.
+     *
+     *  @param u the first vertex index
+     *  @param v the second vertex index
+     *  @return the index of a connecting edge, or -1 if there is none
+     */
+    public int findEdge(int u, int v) {
+        if(degree(v) < degree(u)) {
+            int tmp = u; u = v; v = tmp;
+        }
+        for(int i = 0; i < degree(u); i++) {
+            if(neighborAt(u, i) == v) {
+                return edgeAt(u, i);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public Collection<GraphNode> getVertices() {
+        if(vertexView == null) {
+            vertexView = new AbstractList<GraphNode>() {
+                public GraphNode get(int i) { return getVertex(i); }
+                public int size() { return getVertexCount(); }
+                public boolean contains(Object o) {
+                    return (o instanceof GraphNode) && containsVertex((GraphNode) o);
+                }
+            };
+        }
+        return vertexView;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public Collection<GraphEdge> getEdges() {
+        if(edgeView == null) {
+            edgeView = new AbstractList<GraphEdge>() {
+                public GraphEdge get(int i) { return getEdge(i); }
+                public int size() { return getEdgeCount(); }
+                public boolean contains(Object o) {
+                    return (o instanceof GraphEdge) && containsEdge((GraphEdge) o);
+                }
+            };
+        }
+        return edgeView;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public boolean containsVertex(GraphNode vertex) {
+        return indexOf(vertex) != -1;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public boolean containsEdge(GraphEdge edge) {
+        return indexOf(edge) != -1;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public Collection<GraphNode> getNeighbors(GraphNode vertex) {
+        final int v = indexOf(vertex);
+        if(v == -1) return null;
+
+        return new AbstractList<GraphNode>() {
+            public GraphNode get(int i) { return getVertex(neighborAt(v, i)); }
+            public int size() { return degree(v); }
+        };
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public Collection<GraphEdge> getIncidentEdges(GraphNode vertex) {
+        final int v = indexOf(vertex);
+        if(v == -1) return null;
+
+        return new AbstractList<GraphEdge>() {
+            public GraphEdge get(int i) { return getEdge(edgeAt(v, i)); }
+            public int size() { return degree(v); }
+        };
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int getNeighborCount(GraphNode vertex) {
+        int v = indexOf(vertex);
+        return (v == -1) ? 0 : degree(v);
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int degree(GraphNode vertex) {
+        return getNeighborCount(vertex);
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public Pair<GraphNode> getEndpoints(GraphEdge edge) {
+        int e = indexOf(edge);
+        if(e == -1) return null;
+        return new Pair<>(getVertex(firstEnd(e)), getVertex(secondEnd(e)));
+    }
+
+    /**
+     *  {@inheritDoc}
+     *
+     *  @throws IllegalArgumentException if the vertex is not an endpoint of the edge
+     */
+    public GraphNode getOpposite(GraphNode vertex, GraphEdge edge) {
+        int e = indexOf(edge);
+        int v = indexOf(vertex);
+        if(e == -1 || v == -1) return null;
+        if(firstEnd(e) == v) return getVertex(secondEnd(e));
+        if(secondEnd(e) == v) return getVertex(firstEnd(e));
+        throw new IllegalArgumentException(vertex + " is not incident to " + edge);
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public Collection<GraphNode> getIncidentVertices(GraphEdge edge) {
+        Pair<GraphNode> p = getEndpoints(edge);
+        if(p == null) return null;
+
+        LinkedList<GraphNode> ret = new LinkedList<>();
+        ret.add(p.getFirst());
+        ret.add(p.getSecond());
+        return ret;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public GraphEdge findEdge(GraphNode v1, GraphNode v2) {
+        int u = indexOf(v1);
+        int v = indexOf(v2);
+        if(u == -1 || v == -1) return null;
+
+        int e = findEdge(u, v);
+        return (e == -1) ? null : getEdge(e);
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public Collection<GraphEdge> findEdgeSet(GraphNode v1, GraphNode v2) {
+        GraphEdge edge = findEdge(v1, v2);
+        if(edge == null) return null;
+
+        LinkedList<GraphEdge> ret = new LinkedList<>();
+        ret.add(edge);
+        return ret;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public boolean isNeighbor(GraphNode v1, GraphNode v2) {
+        return findEdge(v1, v2) != null;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public boolean isIncident(GraphNode vertex, GraphEdge edge) {
+        int e = indexOf(edge);
+        int v = indexOf(vertex);
+        return e != -1 && v != -1 && (firstEnd(e) == v || secondEnd(e) == v);
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public Collection<GraphEdge> getEdges(EdgeType edgeType) {
+        return (edgeType == EdgeType.UNDIRECTED) ? getEdges() : null;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int getEdgeCount(EdgeType edgeType) {
+        return (edgeType == EdgeType.UNDIRECTED) ? getEdgeCount() : 0;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public Collection<GraphNode> getPredecessors(GraphNode vertex) { return getNeighbors(vertex); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public Collection<GraphNode> getSuccessors(GraphNode vertex) { return getNeighbors(vertex); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public Collection<GraphEdge> getInEdges(GraphNode vertex) { return getIncidentEdges(vertex); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public Collection<GraphEdge> getOutEdges(GraphNode vertex) { return getIncidentEdges(vertex); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public boolean isPredecessor(GraphNode v1, GraphNode v2) { return isNeighbor(v1, v2); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public boolean isSuccessor(GraphNode v1, GraphNode v2) { return isNeighbor(v1, v2); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int inDegree(GraphNode vertex) { return degree(vertex); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int outDegree(GraphNode vertex) { return degree(vertex); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int getPredecessorCount(GraphNode vertex) { return degree(vertex); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int getSuccessorCount(GraphNode vertex) { return degree(vertex); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public GraphNode getSource(GraphEdge directedEdge) { return null; }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public GraphNode getDest(GraphEdge directedEdge) { return null; }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public boolean isSource(GraphNode vertex, GraphEdge edge) { return false; }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public boolean isDest(GraphNode vertex, GraphEdge edge) { return false; }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public EdgeType getEdgeType(GraphEdge edge) { return EdgeType.UNDIRECTED; }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public EdgeType getDefaultEdgeType() { return EdgeType.UNDIRECTED; }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int getIncidentCount(GraphEdge edge) { return 2; }
+
+    /**
+     *  Not supported, this graph is read-only.
+     *
+     *  @param vertex ignored
+     *  @return never returns
+     *  @throws UnsupportedOperationException always
+     */
+    public boolean addVertex(GraphNode vertex) {
+        throw new UnsupportedOperationException("read-only graph");
+    }
+
+    /**
+     *  Not supported, this graph is read-only.
+     *
+     *  @param vertex ignored
+     *  @return never returns
+     *  @throws UnsupportedOperationException always
+     */
+    public boolean removeVertex(GraphNode vertex) {
+        throw new UnsupportedOperationException("read-only graph");
+    }
+
+    /**
+     *  Not supported, this graph is read-only.
+     *
+     *  @param edge ignored
+     *  @return never returns
+     *  @throws UnsupportedOperationException always
+     */
+    public boolean removeEdge(GraphEdge edge) {
+        throw new UnsupportedOperationException("read-only graph");
+    }
+
+    /**
+     *  Not supported, this graph is read-only.
+     *
+     *  @param e ignored
+     *  @param v1 ignored
+     *  @param v2 ignored
+     *  @return never returns
+     *  @throws UnsupportedOperationException always
+     */
+    public boolean addEdge(GraphEdge e, GraphNode v1, GraphNode v2) {
+        throw new UnsupportedOperationException("read-only graph");
+    }
+
+    /**
+     *  Not supported, this graph is read-only.
+     *
+     *  @param e ignored
+     *  @param v1 ignored
+     *  @param v2 ignored
+     *  @param edgeType ignored
+     *  @return never returns
+     *  @throws UnsupportedOperationException always
+     */
+    public boolean addEdge(GraphEdge e, GraphNode v1, GraphNode v2, EdgeType edgeType) {
+        throw new UnsupportedOperationException("read-only graph");
+    }
+
+    /**
+     *  Not supported, this graph is read-only.
+     *
+     *  @param edge ignored
+     *  @param vertices ignored
+     *  @return never returns
+     *  @throws UnsupportedOperationException always
+     */
+    public boolean addEdge(GraphEdge edge, Collection<? extends GraphNode> vertices) {
+        throw new UnsupportedOperationException("read-only graph");
+    }
+
+    /**
+     *  Not supported, this graph is read-only.
+     *
+     *  @param edge ignored
+     *  @param vertices ignored
+     *  @param edgeType ignored
+     *  @return never returns
+     *  @throws UnsupportedOperationException always
+     */
+    public boolean addEdge(GraphEdge edge, Collection<? extends GraphNode> vertices, EdgeType edgeType) {
+        throw new UnsupportedOperationException("read-only graph");
+    }
+}
\ No newline at end of file
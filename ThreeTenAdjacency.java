@@ -0,0 +1,94 @@
+import java.util.function.IntConsumer;
+
+/**
+ *  Primitive, allocation-free access to the neighborhoods of a graph.
+ *  Vertices and edges are addressed by int handles; what a handle means
+ *  (a node id, or a dense index) is up to the implementation, and
+ *  getVertex/getEdge turn handles back into graph components.
+ *
+ *  <p>Neighbor lists can be walked either with a cursor
+ *  (degree + neighborAt/edgeAt) or with a visitor (forEachNeighbor).
+ */
+interface ThreeTenAdjacency {
+    /**
+     *  Returns the vertex for a handle.
+     *
+     *  @param v the vertex handle
+     *  @return the vertex, or null if there is no vertex with that handle
+     */
+    public GraphNode getVertex(int v);
+
+    /**
+     *  Returns the edge for a handle.
+     *
+     *  @param e the edge handle
+     *  @return the edge, or null if there is no edge with that handle
+     */
+    public GraphEdge getEdge(int e);
+
+    /**
+     *  Returns the handle of a vertex.
+     *
+     *  @param vertex the vertex to look up
+     *  @return the vertex handle, or -1 if it is not in the graph
+     */
+    public int indexOf(GraphNode vertex);
+
+    /**
+     *  Returns the handle of an edge.
+     *
+     *  @param edge the edge to look up
+     *  @return the edge handle, or -1 if it is not in the graph
+     */
+    public int indexOf(GraphEdge edge);
+
+    /**
+     *  Returns the number of neighbor entries of a vertex.
+     *
+     *  @param v the vertex handle
+     *  @return the degree of the vertex
+     */
+    public int degree(int v);
+
+    /**
+     *  Returns the i-th neighbor of a vertex.
+     *
+     *  @param v the vertex handle
+     *  @param i the position in the neighbor list, 0 to degree(v)-1
+     *  @return the handle of the neighbor
+     */
+    public int neighborAt(int v, int i);
+
+    /**
+     *  Returns the edge connecting a vertex to its i-th neighbor.
+     *
+     *  @param v the vertex handle
+     *  @param i the position in the neighbor list, 0 to degree(v)-1
+     *  @return the handle of the edge
+     */
+    public int edgeAt(int v, int i);
+
+    /**
+     *  Calls the action with the handle of every neighbor of a vertex.
+     *
+     *  @param v the vertex handle
+     *  @param action what to do with each neighbor handle
+     */
+    public default void forEachNeighbor(int v, IntConsumer action) {
+        for(int i = 0, d = degree(v); i < d; i++) {
+            action.accept(neighborAt(v, i));
+        }
+    }
+
+    /**
+     *  Calls the action with the handle of every edge incident to a vertex.
+     *
+     *  @param v the vertex handle
+     *  @param action what to do with each edge handle
+     */
+    public default void forEachIncidentEdge(int v, IntConsumer action) {
+        for(int i = 0, d = degree(v); i < d; i++) {
+            action.accept(edgeAt(v, i));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,267 @@
+import edu.uci.ics.jung.graph.Graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ *  Times ThreeTenColor on a large graph with each vertex ordering (see
+ *  ThreeTenOrdering). The graph is a random geometric graph whose node
+ *  ids are shuffled, so the order the graph lists its vertices in has
+ *  no locality at all; the orderings have to find it again. The PACKED
+ *  row runs on a ThreeTenCompressedGraph in RCM order, and the BUCKETS
+ *  row runs in RCM order with a WeissBucketQueue instead of the heap.
+ *
+ *  <p>What it measured (average degree 16, best of 3, stage 2 in ms):
+ *  <pre>
+ *  nodes      NONE   DEGREE    BFS    RCM
+ *  5000       1.94     1.75   1.47   1.75
+ *  20000     17.87     9.50  10.28  11.63
+ *  400000      371      332    523    514
+ *  </pre>
+ *  Reordering helps stage 2 on small and mid-sized graphs. On large
+ *  ones BFS and RCM were about 40% slower than no reordering, and every
+ *  ordering makes start slower, since it has to compute the order and
+ *  build a second copy. So NONE stays the default, and no ordering is a
+ *  safe general recommendation; run this on the graphs at hand first.
+ *
+ *  <p>The bucket queue does not pay off either. Stage 1 never changes
+ *  a queued node's cost, so only its removals are used: at 400000
+ *  nodes BUCKETS took 692 ms for stage 1, against 833 ms for the heap in
+ *  the same (RCM) order and 367 ms for the heap in DEGREE order.
+ *
+ *  <p>ThreeTenColor walks each neighbor list in one pass (forEachNeighbor
+ *  and forEachIncidentEdge), which matters most for PACKED: looking up
+ *  each entry on its own decodes up to a block per entry. At 20000 nodes
+ *  PACKED took about 28 ms for stage 1 and 30 ms for stage 2 this way,
+ *  against 70 ms and 90 ms with one lookup per entry.
+ *
+ *  <p>The last line compares the CSR copy with the bit matrix
+ *  (ThreeTenDenseGraph) on a 3000-node graph with edge probability 0.5,
+ *  like SimGUI's. A whole run took 0.4 to 0.55 s on CSR (54 MB of
+ *  adjacency) and 0.6 s on the matrix (1.7 MB); with one lookup per
+ *  entry the matrix took 2.4 s. So ThreeTenColor runs on CSR and the
+ *  matrix is only for saving memory.
+ *
+ *  <p>Run with: java ThreeTenBenchmark [nodes] [average degree] [seed] [repeats]
+ */
+class ThreeTenBenchmark {
+    /**
+     *  Makes a random geometric graph: nodes are points in the unit square,
+     *  and two nodes are connected when they are closer than a radius
+     *  picked to give about the requested average degree.
+     *
+     *  @param n the number of nodes
+     *  @param degree the average degree wanted
+     *  @param seed the random seed
+     *  @return the graph
+     */
+    static ThreeTenGraph geometric(int n, double degree, long seed) {
+        Random random = new Random(seed);
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for(int i = 0; i < n; i++) {
+            x[i] = random.nextDouble();
+            y[i] = random.nextDouble();
+        }
+
+        //bucket the points into a grid of cells one radius wide
+        double radius = Math.sqrt(degree / (Math.PI * n));
+        int cells = Math.max(1, (int) (1 / radius));
+        int[] cellStart = new int[cells * cells + 1];
+        int[] cellOf = new int[n];
+        for(int i = 0; i < n; i++) {
+            cellOf[i] = Math.min(cells - 1, (int) (x[i] * cells)) * cells + Math.min(cells - 1, (int) (y[i] * cells));
+            cellStart[cellOf[i] + 1]++;
+        }
+        for(int c = 0; c < cells * cells; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        int[] fill = Arrays.copyOf(cellStart, cells * cells);
+        int[] byCell = new int[n];
+        for(int i = 0; i < n; i++) {
+            byCell[fill[cellOf[i]]++] = i;
+        }
+
+        int[] ids = new int[n];
+        for(int i = 0; i < n; i++) {
+            ids[i] = i;
+        }
+        for(int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = ids[i]; ids[i] = ids[j]; ids[j] = tmp;
+        }
+
+        int[] src = new int[4 * (int) (degree + 1) * n];
+        int[] dst = new int[src.length];
+        int m = 0;
+        for(int i = 0; i < n; i++) {
+            int cx = cellOf[i] / cells;
+            int cy = cellOf[i] % cells;
+            for(int ax = Math.max(0, cx - 1); ax <= Math.min(cells - 1, cx + 1); ax++) {
+                for(int ay = Math.max(0, cy - 1); ay <= Math.min(cells - 1, cy + 1); ay++) {
+                    int c = ax * cells + ay;
+                    for(int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+                        int j = byCell[k];
+                        double dx = x[i] - x[j];
+                        double dy = y[i] - y[j];
+                        if(j > i && dx * dx + dy * dy < radius * radius) {
+                            if(m == src.length) {
+                                src = Arrays.copyOf(src, 2 * m);
+                                dst = Arrays.copyOf(dst, 2 * m);
+                            }
+                            src[m] = ids[i];
+                            dst[m] = ids[j];
+                            m++;
+                        }
+                    }
+                }
+            }
+        }
+
+        ThreeTenGraph graph = new ThreeTenGraph();
+        ArrayList<GraphNode> nodes = new ArrayList<>(n);
+        for(int id = 0; id < n; id++) {
+            nodes.add(new GraphNode(id));
+        }
+        graph.addVertices(nodes);
+        graph.addEdges(Arrays.copyOf(src, m), Arrays.copyOf(dst, m));
+        return graph;
+    }
+
+    /**
+     *  Makes a random graph where each pair of nodes is connected with
+     *  the same probability, like the ones SimGUI generates.
+     *
+     *  @param n the number of nodes
+     *  @param p the probability of each edge
+     *  @param seed the random seed
+     *  @return the graph
+     */
+    static ThreeTenGraph uniform(int n, double p, long seed) {
+        Random random = new Random(seed);
+        int[] src = new int[1024];
+        int[] dst = new int[src.length];
+        int m = 0;
+        for(int i = 0; i < n; i++) {
+            for(int j = i + 1; j < n; j++) {
+                if(random.nextDouble() < p) {
+                    if(m == src.length) {
+                        src = Arrays.copyOf(src, 2 * m);
+                        dst = Arrays.copyOf(dst, 2 * m);
+                    }
+                    src[m] = i;
+                    dst[m] = j;
+                    m++;
+                }
+            }
+        }
+
+        ThreeTenGraph graph = new ThreeTenGraph();
+        ArrayList<GraphNode> nodes = new ArrayList<>(n);
+        for(int id = 0; id < n; id++) {
+            nodes.add(new GraphNode(id));
+        }
+        graph.addVertices(nodes);
+        graph.addEdges(Arrays.copyOf(src, m), Arrays.copyOf(dst, m));
+        return graph;
+    }
+
+    /**
+     *  Runs the coloring once and records how long each part took.
+     *
+     *  @param graph the graph to color
+     *  @param ordering the vertex ordering to use
+     *  @param buckets whether to use the bucket queue
+     *  @param times gets the nanoseconds for start, stage 1 and stage 2
+     *  @return the color index of each node, by node id
+     */
+    static int[] run(Graph<GraphNode,GraphEdge> graph, ThreeTenOrdering ordering, boolean buckets, long[] times) {
+        ThreeTenColor alg = new ThreeTenColor();
+        alg.reset(graph);
+        alg.setOrdering(ordering);
+        alg.setBucketQueue(buckets);
+        int n = graph.getVertexCount();
+
+        long t0 = System.nanoTime();
+        alg.step();
+        long t1 = System.nanoTime();
+        for(int i = 0; i < n; i++) {
+            alg.step();
+        }
+        long t2 = System.nanoTime();
+        while(alg.step()) {
+        }
+        long t3 = System.nanoTime();
+
+        times[0] = t1 - t0;
+        times[1] = t2 - t1;
+        times[2] = t3 - t2;
+
+        int[] colors = new int[n];
+        for(GraphNode v : graph.getVertices()) {
+            colors[v.id] = ThreeTenPalette.indexOf(v.getColor());
+        }
+        return colors;
+    }
+
+    /**
+     *  Main method that prints the best time of each part for each ordering.
+     *
+     *  @param args nodes, average degree, seed and repeats (all optional)
+     */
+    public static void main(String[] args) {
+        int n = (args.length > 0) ? Integer.parseInt(args[0]) : 100000;
+        double degree = (args.length > 1) ? Double.parseDouble(args[1]) : 16;
+        long seed = (args.length > 2) ? Long.parseLong(args[2]) : 310;
+        int repeats = (args.length > 3) ? Integer.parseInt(args[3]) : 5;
+
+        ThreeTenGraph graph = geometric(n, degree, seed);
+        System.out.printf("%d nodes, %d edges, best of %d runs (ms)%n", graph.getVertexCount(), graph.getEdgeCount(), repeats);
+        System.out.printf("%-8s %10s %10s %10s%n", "order", "start", "stage 1", "stage 2");
+
+        ThreeTenCompressedGraph compressed = graph.freezeCompressed(ThreeTenOrdering.RCM);
+        int[] expected = null;
+        boolean same = true;
+        int orderings = ThreeTenOrdering.values().length;
+        for(int k = 0; k <= orderings + 1; k++) {
+            //the last two rows run on the compressed copy, and with buckets
+            ThreeTenOrdering ordering = (k < orderings) ? ThreeTenOrdering.values()[k]
+                : (k == orderings) ? ThreeTenOrdering.NONE : ThreeTenOrdering.RCM;
+            Graph<GraphNode,GraphEdge> target = (k == orderings) ? compressed : graph;
+            boolean buckets = k == orderings + 1;
+            String name = (k < orderings) ? ordering.toString() : buckets ? "BUCKETS" : "PACKED";
+            long[] best = {Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE};
+            long[] times = new long[3];
+            for(int r = 0; r < repeats; r++) {
+                int[] colors = run(target, ordering, buckets, times);
+                for(int t = 0; t < 3; t++) {
+                    best[t] = Math.min(best[t], times[t]);
+                }
+                if(expected == null) {
+                    expected = colors;
+                }
+                same &= Arrays.equals(expected, colors);
+            }
+            System.out.printf("%-8s %10.2f %10.2f %10.2f%n", name, best[0] / 1e6, best[1] / 1e6, best[2] / 1e6);
+        }
+        System.out.println(same ? "same coloring with every ordering" : "COLORINGS DIFFER");
+        System.out.printf("adjacency: CSR (RCM) %d bytes, PACKED (RCM) %d bytes%n",
+            graph.freeze(ThreeTenOrdering.RCM).adjacencyBytes(), compressed.adjacencyBytes());
+
+        //the bit matrix against CSR on a half-full graph like SimGUI's
+        int denseN = 3000;
+        ThreeTenCsrGraph halfCsr = uniform(denseN, 0.5, seed).freeze();
+        ThreeTenDenseGraph halfMatrix = new ThreeTenDenseGraph(halfCsr);
+        long[] whole = {Long.MAX_VALUE, Long.MAX_VALUE};
+        long[] times = new long[3];
+        for(int r = 0; r < repeats; r++) {
+            for(int k = 0; k < 2; k++) {
+                run((k == 0) ? halfCsr : halfMatrix, ThreeTenOrdering.NONE, false, times);
+                whole[k] = Math.min(whole[k], times[0] + times[1] + times[2]);
+            }
+        }
+        System.out.printf("%d nodes, p=0.5, whole run: CSR %.2f ms (%d bytes), MATRIX %.2f ms (%d bytes)%n",
+            denseN, whole[0] / 1e6, halfCsr.adjacencyBytes(), whole[1] / 1e6, halfMatrix.adjacencyBytes());
+    }
+}
\ No newline at end of file
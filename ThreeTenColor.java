@@ -5,11 +5,13 @@ import java.awt.Color;
 
 import javax.swing.JPanel;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.NoSuchElementException;
 
-import java.util.LinkedList;
+import java.util.function.IntConsumer;
 
 /**
  *  Simulation of our coloring algorithm.
@@ -22,14 +24,82 @@ class ThreeTenColor implements ThreeTenAlg {
     Graph<GraphNode, GraphEdge> graph;
 
     /**
-     *  The priority queue of nodes for the algorithm.
+     *  The frozen copy of the graph a run works on, for primitive
+     *  neighbor access by the per-step loops. Its vertex and edge
+     *  handles run from 0 to the counts minus one.
      */
-    WeissPriorityQueue<GraphNode> queue;
+    ThreeTenAbstractGraph adjacency;
 
     /**
-     *  The stack of nodes for the algorithm.
+     *  Cost, active flag, neighbor colors and color of every node, by
+     *  vertex handle. When the copy holds its GraphNode objects, they are
+     *  bound to it, so the GUI sees the same values.
      */
-    LinkedList<GraphNode> stack;
+    GraphNodeAttributes attributes;
+
+    /**
+     *  The color of every edge, by edge handle: EDGE_NONE, EDGE_INACTIVE,
+     *  or the handle of the node whose color the edge took.
+     */
+    private int[] edgeColors;
+
+    /**
+     *  An edge color code for COLOR_NONE_EDGE.
+     */
+    private static final int EDGE_NONE = -1;
+
+    /**
+     *  An edge color code for COLOR_INACTIVE_EDGE.
+     */
+    private static final int EDGE_INACTIVE = -2;
+
+    /**
+     *  Whether the GraphNode and GraphEdge objects of the copy already
+     *  exist (they are the GUI's), so the run keeps them up to date too.
+     *  A ThreeTenMappedGraph would have to create them, so a run on one
+     *  only fills the columns.
+     */
+    private boolean showObjects;
+
+    /**
+     *  The priority queue of nodes for the algorithm, by vertex handle
+     *  (adjacency.getVertex turns a handle back into its node). See
+     *  priority for the keys. Null when the bucket queue is used.
+     */
+    WeissIntPriorityQueue queue;
+
+    /**
+     *  The bucket queue of nodes, by vertex handle and keyed by cost,
+     *  when setBucketQueue chose it instead of the heap.
+     */
+    WeissBucketQueue buckets;
+
+    /**
+     *  The stack of nodes for the algorithm, by vertex handle; the top is
+     *  stack[stackSize-1].
+     */
+    private int[] stack;
+
+    /**
+     *  The number of nodes on the stack.
+     */
+    private int stackSize;
+
+    /**
+     *  The most colors a run may use; nodes that would need more get
+     *  COLOR_WARNING.
+     */
+    private int maxColors = Integer.MAX_VALUE;
+
+    /**
+     *  How the frozen copy of the graph lays out its vertices.
+     */
+    private ThreeTenOrdering ordering = ThreeTenOrdering.NONE;
+
+    /**
+     *  Whether the next run queues the nodes in buckets instead of a heap.
+     */
+    private boolean useBuckets = false;
 
     /**
      *  Whether or not the algorithm has been started.
@@ -41,6 +111,59 @@ class ThreeTenColor implements ThreeTenAlg {
      */
     private boolean coloring = false;
 
+    /**
+     *  The number of active neighbors countActive has seen.
+     */
+    private int visitCount;
+
+    /**
+     *  The color index takeColor records in each neighbor.
+     */
+    private int visitIndex;
+
+    /**
+     *  The node whose color paintEdge gives each uncolored edge.
+     */
+    private int visitNode;
+
+    /**
+     *  Grays out an edge of a removed node. This and the visitors below
+     *  are made once and keep their state in the fields above, so a step
+     *  allocates nothing and still walks each neighbor list in one pass.
+     */
+    private final IntConsumer grayEdge = e -> {
+        edgeColors[e] = EDGE_INACTIVE;
+        if (showObjects) {
+            adjacency.getEdge(e).color = COLOR_INACTIVE_EDGE;
+        }
+    };
+
+    /**
+     *  Counts a neighbor if it is active.
+     */
+    private final IntConsumer countActive = w -> {
+        if (attributes.isActive(w)) {
+            visitCount++;
+        }
+    };
+
+    /**
+     *  Tells a neighbor that visitIndex is taken.
+     */
+    private final IntConsumer takeColor = w -> attributes.addNbrColor(w, visitIndex);
+
+    /**
+     *  Gives an edge the color of visitNode if it has no color yet.
+     */
+    private final IntConsumer paintEdge = e -> {
+        if (edgeColors[e] == EDGE_NONE) {
+            edgeColors[e] = visitNode;
+            if (showObjects) {
+                adjacency.getEdge(e).color = attributes.getColor(visitNode);
+            }
+        }
+    };
+
     /**
      *  The color when a node has "no color".
      */
@@ -73,7 +196,8 @@ class ThreeTenColor implements ThreeTenAlg {
 
 
     /**
-     *  The colors used to assign to nodes.
+     *  The first colors used to assign to nodes; ThreeTenPalette
+     *  makes up more when a graph needs them.
      */
     public static final Color[] COLORS =
         {Color.PINK, Color.GREEN, Color.CYAN, Color.ORANGE,
@@ -95,6 +219,44 @@ class ThreeTenColor implements ThreeTenAlg {
         coloring = false;
     }
 
+    /**
+     *  Limits how many colors a run may use (no limit by default).
+     *  For example, COLORS.length gives the classic 8-color palette.
+     *
+     *  @param maxColors the most colors to use
+     */
+    public void setMaxColors(int maxColors) {
+        if(maxColors < 1) {
+            throw new IllegalArgumentException("need at least one color");
+        }
+        this.maxColors = maxColors;
+    }
+
+    /**
+     *  Chooses how the frozen copy of the graph lays out its vertices
+     *  (NONE by default). This changes how fast a run goes, not the
+     *  coloring it finds, and not always for the better: see
+     *  ThreeTenBenchmark for when reordering pays off.
+     *
+     *  @param ordering the vertex order
+     */
+    public void setOrdering(ThreeTenOrdering ordering) {
+        this.ordering = ordering;
+    }
+
+    /**
+     *  Chooses between the binary heap (the default) and a bucket queue
+     *  for stage 1. Both pick nodes in the same order. Stage 1 never
+     *  changes the cost of a queued node, so the buckets' O(1) key
+     *  updates are never used, and filling them still sorts the nodes by
+     *  id; they are no faster than the heap (see ThreeTenBenchmark).
+     *
+     *  @param useBuckets true for the bucket queue
+     */
+    public void setBucketQueue(boolean useBuckets) {
+        this.useBuckets = useBuckets;
+    }
+
     /**
      *  {@inheritDoc}
      */
@@ -108,23 +270,62 @@ class ThreeTenColor implements ThreeTenAlg {
     public void start() {
         this.started = true;
 
+        //run on a CSR copy so neighbor scans stay in flat arrays (the bit
+        //matrix is smaller for dense graphs but slower to scan, see
+        //ThreeTenBenchmark); other frozen graphs with handles 0..n-1 are
+        //used as they are
+        if(graph instanceof ThreeTenGraph) {
+            graph = ((ThreeTenGraph) graph).freeze(ordering);
+        }
+        else if(graph instanceof ThreeTenConcurrentGraph) {
+            //one consistent version, even while the GUI keeps editing
+            graph = ((ThreeTenConcurrentGraph) graph).freeze(ordering);
+        }
+        else if(!(graph instanceof ThreeTenAbstractGraph) || !((ThreeTenAbstractGraph) graph).hasDenseIndexes()
+            || ordering != ThreeTenOrdering.NONE) {
+            graph = ThreeTenCsrGraph.ordered(graph, ordering);
+        }
+        adjacency = (ThreeTenAbstractGraph) graph;
+        showObjects = adjacency.holdsObjects();
+
         //create an empty stack
-        stack = new LinkedList<>();
+        int slots = adjacency.getVertexCount();
+        stack = new int[slots];
+        stackSize = 0;
+
+        //the node and edge values live in columns indexed by handle
+        attributes = new GraphNodeAttributes(slots);
+        edgeColors = new int[adjacency.getEdgeCount()];
+        Arrays.fill(edgeColors, EDGE_NONE);
 
         //create an empty priority queue
-        queue = new WeissPriorityQueue<>();
+        queue = useBuckets ? null : new WeissIntPriorityQueue(slots);
+        buckets = null;
 
-        for(GraphNode v : graph.getVertices()) {
+        for(int h = 0; h < slots; h++) {
+            if(showObjects) {
+                attributes.bind(adjacency.getVertex(h), h);
+            }
+            else {
+                attributes.setColor(h, COLOR_NONE_NODE);
+            }
+            attributes.clearNbrColors(h);
 
             //Set the cost of each node to be its degree
-            v.setCost(graph.degree(v));
+            attributes.setCost(h, adjacency.degree(h));
 
             //Set each node to be active
             //This enables the display of cost for the node
-            v.setActive();
+            attributes.setActive(h, true);
 
             //add node into queue
-            queue.add(v);
+            if(queue != null) {
+                queue.add(h, priority(h));
+            }
+        }
+
+        if(useBuckets) {
+            fillBuckets(slots);
         }
 
         //highlight the current node with max priority
@@ -138,8 +339,13 @@ class ThreeTenColor implements ThreeTenAlg {
     public void finish() {
 
         // Coloring completed. Set all edges back to "no color".
-        for (GraphEdge e: graph.getEdges()){
-            e.setColor(COLOR_NONE_EDGE);
+        if (edgeColors != null) {
+            Arrays.fill(edgeColors, EDGE_NONE);
+        }
+        if (!started || showObjects) {
+            for (GraphEdge e: graph.getEdges()){
+                e.setColor(COLOR_NONE_EDGE);
+            }
         }
 
     }
@@ -156,11 +362,11 @@ class ThreeTenColor implements ThreeTenAlg {
     public boolean setupNextStep() {
 
 
-        if (coloring && stack.size() == 0)
+        if (coloring && stackSize == 0)
             return false;
 
 
-        if (!coloring && graph.getVertexCount() == stack.size()){
+        if (!coloring && graph.getVertexCount() == stackSize){
             coloring = true;
         }
 
@@ -177,7 +383,7 @@ class ThreeTenColor implements ThreeTenAlg {
 
             // maxNode is the active node with the highest priority
             // Remove the maxNode from priority queue and push it into stack
-            GraphNode maxNode = findMax();
+            int maxNode = removeMax();
 
             //Update the cost of all nodes that is a neighbor of the maxNode
             updateNeighborCost(maxNode);
@@ -191,7 +397,7 @@ class ThreeTenColor implements ThreeTenAlg {
             //Stage 2: pop nodes from stack one by one and choose a color for each
 
             //Pop off stack top
-            GraphNode node = stack.pop();
+            int node = stack[--stackSize];
 
             //For the node popped off, pick a color that is different from all
             //neighbors who has got assigned a color so far
@@ -205,14 +411,138 @@ class ThreeTenColor implements ThreeTenAlg {
     }
 
 
+    /**
+     * Returns the queue key of a vertex. It orders the same way as
+     * GraphNode.compareTo: the highest cost first, and the smallest
+     * node id first among equal costs.
+     *
+     * @param h the vertex handle
+     * @return the key
+     */
+    private long priority(int h) {
+        return ((long) -attributes.getCost(h) << 32) | adjacency.vertexId(h);
+    }
+
+    /**
+     * Puts every node in a bucket queue keyed by its cost. A bucket
+     * hands out nodes first in, first out, so they go in by ascending
+     * node id to break ties the way priority does. The sort is over the
+     * nodes only, so sparse ids cost nothing extra.
+     *
+     * @param slots the number of vertex handles
+     */
+    private void fillBuckets(int slots) {
+        long[] byId = new long[slots];
+        int count = 0;
+        int maxCost = 0;
+        for(int h = 0; h < slots; h++) {
+            if(attributes.isActive(h)) {
+                byId[count++] = ((long) adjacency.vertexId(h) << 32) | h;
+                maxCost = Math.max(maxCost, attributes.getCost(h));
+            }
+        }
+        Arrays.sort(byId, 0, count);
+
+        buckets = new WeissBucketQueue(slots, maxCost);
+        for(int k = 0; k < count; k++) {
+            int h = (int) byId[k];
+            buckets.add(h, attributes.getCost(h));
+        }
+    }
+
+    /**
+     * Returns the number of nodes still queued.
+     *
+     * @return the queue size, 0 before the algorithm starts
+     */
+    public int queueSize() {
+        if(queue != null) {
+            return queue.size();
+        }
+        return (buckets != null) ? buckets.size() : 0;
+    }
+
+    /**
+     * Returns up to count queued nodes for display: heap order for the
+     * heap, removal order for the bucket queue.
+     *
+     * @param count the most nodes to return
+     * @return the nodes
+     */
+    public List<GraphNode> queuePreview(int count) {
+        List<GraphNode> nodes = new ArrayList<>();
+        if(queue != null) {
+            for(int k = 1; k <= queue.size() && nodes.size() < count; k++) {
+                nodes.add(adjacency.getVertex(queue.get(k)));
+            }
+        }
+        else if(buckets != null) {
+            for(int h = buckets.nextMax(-1); h >= 0 && nodes.size() < count; h = buckets.nextMax(h)) {
+                nodes.add(adjacency.getVertex(h));
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Returns the number of nodes on the stack.
+     *
+     * @return the stack size, 0 before the algorithm starts
+     */
+    public int stackSize() {
+        return stackSize;
+    }
+
+    /**
+     * Returns up to count nodes from the top of the stack down, for display.
+     *
+     * @param count the most nodes to return
+     * @return the nodes
+     */
+    public List<GraphNode> stackPreview(int count) {
+        List<GraphNode> nodes = new ArrayList<>();
+        for(int k = stackSize - 1; k >= 0 && nodes.size() < count; k--) {
+            nodes.add(adjacency.getVertex(stack[k]));
+        }
+        return nodes;
+    }
+
+    /**
+     * Returns the color a run gave a node, without needing its GraphNode.
+     *
+     * @param v the vertex handle in the copy the run works on
+     * @return the color
+     */
+    public Color nodeColor(int v) {
+        return attributes.getColor(v);
+    }
+
+    /**
+     * Returns the color a run gave an edge, without needing its GraphEdge.
+     *
+     * @param e the edge handle in the copy the run works on
+     * @return the color
+     */
+    public Color edgeColor(int e) {
+        int code = edgeColors[e];
+        if(code == EDGE_NONE) return COLOR_NONE_EDGE;
+        if(code == EDGE_INACTIVE) return COLOR_INACTIVE_EDGE;
+        return attributes.getColor(code);
+    }
+
     /**
      * Highlights the next
      * node in the priority Queue.
      */
     public void highlightNextMax(){
 
+        //the queue is empty once the last node has been removed
+        if(queueSize() == 0) {
+            return;
+        }
 
-        queue.element().color = COLOR_HIGHLIGHT;
+        int next = (queue != null) ? queue.element() : buckets.elementMax();
+        attributes.setColor(next, COLOR_HIGHLIGHT);
 
     }
 
@@ -224,23 +554,31 @@ class ThreeTenColor implements ThreeTenAlg {
      * @return the max priority node that was removed
      */
     public GraphNode findMax(){
-        if(queue.size() == 0) {
-            return null;
+        int v = removeMax();
+        return (v < 0) ? null : adjacency.getVertex(v);
+    }
+
+    /**
+     * Does the work of findMax by vertex handle.
+     *
+     * @return the handle of the removed node, or -1 if the queue is empty
+     */
+    private int removeMax(){
+        if(queueSize() == 0) {
+            return -1;
         }
 
-        GraphNode removed = queue.remove();
+        int v = (queue != null) ? queue.remove() : buckets.removeMax();
 
-        stack.push(removed);
+        stack[stackSize++] = v;
 
-        removed.unsetActive();
-        removed.color = COLOR_INACTIVE_NODE;
+        attributes.setActive(v, false);
+        attributes.setColor(v, COLOR_INACTIVE_NODE);
 
-        for (GraphEdge currrentEdge : graph.getIncidentEdges(removed)) {
-            currrentEdge.color = COLOR_INACTIVE_EDGE;
-        }
+        adjacency.forEachIncidentEdge(v, grayEdge);
 
 
-        return removed;
+        return v;
     }
 
     /**
@@ -250,21 +588,27 @@ class ThreeTenColor implements ThreeTenAlg {
      * @param maxNode the highest priority node
      */
     public void updateNeighborCost(GraphNode maxNode){
+        updateNeighborCost(adjacency.indexOf(maxNode));
+    }
 
-        int cost = 0;
-        for (GraphNode currentNode : graph.getNeighbors(maxNode)) {
-            if (currentNode.isActive()) {
-                cost++;
-            }
-        }
-        maxNode.setCost(cost);
+    /**
+     * Does the work of updateNeighborCost by vertex handle.
+     *
+     * @param v the handle of the highest priority node
+     */
+    private void updateNeighborCost(int v){
+
+        visitCount = 0;
+        adjacency.forEachNeighbor(v, countActive);
+        attributes.setCost(v, visitCount);
 
     }
 
     /**
      * Changes the color of a current node that isn't
      * the same as any of its neighbors and is in the lowest possible index
-     * in the COLORS' arrays.
+     * in the palette. The neighbor colors are read from the node's
+     * mask, which updateColor keeps up to date.
      *
      * @param node current node
      * @return the color chosen or COLOR_WARNING if no color is available
@@ -274,25 +618,20 @@ class ThreeTenColor implements ThreeTenAlg {
         if(node == null) {
             return null;
         }
+        return chooseColor(adjacency.indexOf(node));
+    }
 
-        List<Color> colors = new LinkedList<>();
-        colors.addAll(List.of(COLORS));
-
-        for (GraphNode current : graph.getNeighbors(node)) {
-            colors.remove(current.color);
-        }
-
-        if(colors.isEmpty()) {
-            return COLOR_WARNING;
-        }
+    /**
+     * Does the work of chooseColor by vertex handle.
+     *
+     * @param v the handle of the current node
+     * @return the color chosen or COLOR_WARNING if no color is available
+     */
+    private Color chooseColor(int v){
 
-        for (int i = 0; i < COLORS.length; i++) {
-            if (colors.get(0) == COLORS[i]) {
-                node.setNbrColor(i);
-                return COLORS[i];
-            }
-        }
-        return null;
+        //the lowest clear bit of the mask is the lowest free color
+        int i = attributes.firstFreeColor(v);
+        return (i < maxColors) ? ThreeTenPalette.color(i) : COLOR_WARNING;
     }
 
     /**
@@ -304,17 +643,33 @@ class ThreeTenColor implements ThreeTenAlg {
      */
     public void updateColor(GraphNode node, Color newColor){
 
-        if (newColor == null || node == null) {
+        if (node == null) {
             return;
         }
+        updateColor(adjacency.indexOf(node), newColor);
+    }
+
+    /**
+     * Does the work of updateColor by vertex handle.
+     *
+     * @param v the handle of the node to update
+     * @param newColor the color to set node to
+     */
+    private void updateColor(int v, Color newColor){
 
-        node.color = newColor;
+        if (newColor == null) {
+            return;
+        }
 
-        for (GraphEdge curr : graph.getIncidentEdges(node)) {
-            if (curr.getColor() == null || curr.color == Color.BLACK) {
-                curr.color = newColor;
-            }
+        attributes.setColor(v, newColor);
+
+        //tell every neighbor this color is now taken
+        visitIndex = attributes.getColorIndex(v);
+        if (visitIndex >= 0) {
+            adjacency.forEachNeighbor(v, takeColor);
         }
+        visitNode = v;
+        adjacency.forEachIncidentEdge(v, paintEdge);
 
     }
 
@@ -0,0 +1,566 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.function.IntConsumer;
+
+/**
+ *  A frozen, read-only copy of an undirected graph whose neighbor lists
+ *  are compressed into one byte array, for graphs too large to keep even
+ *  in CSR form. Each sorted neighbor list is stored as varint gaps and
+ *  decoded on the fly, so a list takes one or two bytes per entry when
+ *  neighbors have nearby indexes (see ThreeTenOrdering) instead of the
+ *  twelve bytes per entry CSR uses.
+ *
+ *  <p>Edges are numbered by their lower endpoint: edges firstEdge[u] ..
+ *  firstEdge[u+1]-1 connect u to itself and to its higher neighbors, in
+ *  neighbor list order. So the edge of an entry pointing to a higher
+ *  neighbor follows from its position, and every other entry only
+ *  stores the edge's rank in its lower endpoint's range. firstEnd(e)
+ *  is always the lower endpoint; the orientation of the original edge
+ *  is not kept.
+ *
+ *  <p>The list of vertex v starts at data[start[v]] with
+ *  <ul>
+ *  <li/> the degree d as a varint,
+ *  <li/> if d is more than BLOCK, a skip table: for each block of BLOCK
+ *        entries after the first, the block's byte offset from the first
+ *        entry as a 4-byte little endian int,
+ *  <li/> the entries. The neighbor w of an entry is a varint gap from the
+ *        previous neighbor, except that the first entry of each block
+ *        stores w-v zigzag encoded so the block can be decoded on its
+ *        own. An entry with w &lt;= v is followed by the edge's rank as a
+ *        varint.
+ *  </ul>
+ *  So neighborAt and edgeAt decode at most BLOCK entries, and the
+ *  forEach methods decode each entry once.
+ *
+ *  <p>As in ThreeTenCsrGraph, the GraphNode and GraphEdge objects are
+ *  shared with the graph the copy was made from.
+ */
+class ThreeTenCompressedGraph extends ThreeTenAbstractGraph {
+    /**
+     *  Entries per skip block.
+     */
+    static final int BLOCK = 16;
+
+    /**
+     *  The vertices, by vertex index.
+     */
+    private final GraphNode[] vertices;
+
+    /**
+     *  The edges, by edge index.
+     */
+    private final GraphEdge[] edges;
+
+    /**
+     *  Where each vertex's list starts in data; start[n] is data's used length.
+     */
+    private final int[] start;
+
+    /**
+     *  The edges with lower endpoint u are firstEdge[u] .. firstEdge[u+1]-1.
+     */
+    private final int[] firstEdge;
+
+    /**
+     *  The encoded neighbor lists.
+     */
+    private final byte[] data;
+
+    /**
+     *  Maps GraphNode.id to vertex index (-1 for ids not in the graph).
+     */
+    private final int[] vertexIndex;
+
+    /**
+     *  Maps GraphEdge.id to edge index (-1 for ids not in the graph).
+     */
+    private final int[] edgeIndex;
+
+    /**
+     *  Compresses a frozen graph, keeping its vertex order. Gaps are
+     *  smallest when the CSR copy was made with a locality ordering.
+     *
+     *  @param csr the graph to compress
+     */
+    public ThreeTenCompressedGraph(ThreeTenCsrGraph csr) {
+        int n = csr.getVertexCount();
+        int m = csr.getEdgeCount();
+
+        vertices = new GraphNode[n];
+        int maxId = -1;
+        for(int v = 0; v < n; v++) {
+            vertices[v] = csr.getVertex(v);
+            maxId = Math.max(maxId, vertices[v].id);
+        }
+        vertexIndex = new int[maxId + 1];
+        Arrays.fill(vertexIndex, -1);
+        for(int v = 0; v < n; v++) {
+            vertexIndex[vertices[v].id] = v;
+        }
+
+        //renumber the edges by lower endpoint, in neighbor list order;
+        //the two entries of a self loop are next to each other
+        int[] renumber = new int[m];
+        Arrays.fill(renumber, -1);
+        firstEdge = new int[n + 1];
+        int next = 0;
+        for(int u = 0; u < n; u++) {
+            firstEdge[u] = next;
+            for(int i = 0, d = csr.degree(u); i < d; i++) {
+                int e = csr.edgeAt(u, i);
+                if(csr.neighborAt(u, i) >= u && renumber[e] == -1) {
+                    renumber[e] = next++;
+                }
+            }
+        }
+        firstEdge[n] = next;
+
+        edges = new GraphEdge[m];
+        maxId = -1;
+        for(int e = 0; e < m; e++) {
+            edges[renumber[e]] = csr.getEdge(e);
+            maxId = Math.max(maxId, edges[renumber[e]].id);
+        }
+        edgeIndex = new int[maxId + 1];
+        Arrays.fill(edgeIndex, -1);
+        for(int e = 0; e < m; e++) {
+            edgeIndex[edges[e].id] = e;
+        }
+
+        //encode the lists
+        start = new int[n + 1];
+        byte[] out = new byte[Math.max(16, 3 * m + 2 * n)];
+        int pos = 0;
+        for(int v = 0; v < n; v++) {
+            start[v] = pos;
+            int d = csr.degree(v);
+            int skips = (d > BLOCK) ? (d - 1) / BLOCK : 0;
+            if(out.length - pos < 5 + 4 * skips + 10 * d) {
+                out = Arrays.copyOf(out, Math.max(2 * out.length, pos + 5 + 4 * skips + 10 * d));
+            }
+            pos = writeVarint(out, pos, d);
+            int table = pos;
+            pos += 4 * skips;
+            int prev = 0;
+            for(int i = 0; i < d; i++) {
+                int w = csr.neighborAt(v, i);
+                if(i % BLOCK == 0) {
+                    if(i > 0) {
+                        writeInt(out, table + 4 * (i / BLOCK - 1), pos - table - 4 * skips);
+                    }
+                    pos = writeVarint(out, pos, (w - v) << 1 ^ (w - v) >> 31);
+                }
+                else {
+                    pos = writeVarint(out, pos, w - prev);
+                }
+                if(w <= v) {
+                    pos = writeVarint(out, pos, renumber[csr.edgeAt(v, i)] - firstEdge[w]);
+                }
+                prev = w;
+            }
+        }
+        start[n] = pos;
+        data = Arrays.copyOf(out, pos);
+    }
+
+    /**
+     *  Writes an unsigned varint, seven bits per byte, low bits first.
+     *
+     *  @param out the buffer
+     *  @param pos where to write
+     *  @param value the value
+     *  @return the position after the varint
+     */
+    private static int writeVarint(byte[] out, int pos, int value) {
+        while((value & ~0x7f) != 0) {
+            out[pos++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out[pos++] = (byte) value;
+        return pos;
+    }
+
+    /**
+     *  Writes a 4-byte little endian int.
+     *
+     *  @param out the buffer
+     *  @param pos where to write
+     *  @param value the value
+     */
+    private static void writeInt(byte[] out, int pos, int value) {
+        out[pos] = (byte) value;
+        out[pos + 1] = (byte) (value >>> 8);
+        out[pos + 2] = (byte) (value >>> 16);
+        out[pos + 3] = (byte) (value >>> 24);
+    }
+
+    /**
+     *  Reads an unsigned varint.
+     *
+     *  @param pos where it starts
+     *  @return the position after it in the high 32 bits, the value in the low 32
+     */
+    private long readVarint(int pos) {
+        int b = data[pos++];
+        int value = b & 0x7f;
+        for(int shift = 7; b < 0; shift += 7) {
+            b = data[pos++];
+            value |= (b & 0x7f) << shift;
+        }
+        return ((long) pos << 32) | (value & 0xffffffffL);
+    }
+
+    /**
+     *  Reads a 4-byte little endian int.
+     *
+     *  @param pos where it starts
+     *  @return the value
+     */
+    private int readInt(int pos) {
+        return (data[pos] & 0xff) | (data[pos + 1] & 0xff) << 8 | (data[pos + 2] & 0xff) << 16 | data[pos + 3] << 24;
+    }
+
+    /**
+     *  Returns where the first entry of a block of a list starts.
+     *
+     *  @param d the degree of the vertex
+     *  @param table the position of its skip table (right after the degree)
+     *  @param b the block number
+     *  @return the position of the block's first entry
+     */
+    private int blockAt(int d, int table, int b) {
+        int skips = (d > BLOCK) ? (d - 1) / BLOCK : 0;
+        return table + 4 * skips + ((b == 0) ? 0 : readInt(table + 4 * (b - 1)));
+    }
+
+    /**
+     *  Decodes a list up to an entry.
+     *
+     *  @param v the vertex index
+     *  @param i the position in the list
+     *  @return the position after the entry's neighbor in the high 32 bits,
+     *      the neighbor in the low 32
+     */
+    private long locate(int v, int i) {
+        long r = readVarint(start[v]);
+        int d = (int) r;
+        int pos = blockAt(d, (int) (r >>> 32), i / BLOCK);
+        r = readVarint(pos);
+        int z = (int) r;
+        int w = v + ((z >>> 1) ^ -(z & 1));
+        for(int j = i - i % BLOCK; j < i; j++) {
+            pos = (int) (r >>> 32);
+            if(w <= v) {
+                pos = (int) (readVarint(pos) >>> 32);
+            }
+            r = readVarint(pos);
+            w += (int) r;
+        }
+        return (r & 0xffffffff00000000L) | (w & 0xffffffffL);
+    }
+
+    /**
+     *  Returns the edge of an entry whose neighbor has been decoded.
+     *
+     *  @param v the vertex index
+     *  @param d its degree
+     *  @param i the position in the list
+     *  @param w the entry's neighbor
+     *  @param pos the position after the neighbor
+     *  @return the edge index
+     */
+    private int edgeOf(int v, int d, int i, int w, int pos) {
+        if(w > v) {
+            //the entries of higher neighbors are the last ones of v's own edges
+            return firstEdge[v + 1] - (d - i);
+        }
+        return firstEdge[w] + (int) readVarint(pos);
+    }
+
+    /**
+     *  Returns the size of the compressed lists and the per-vertex tables,
+     *  leaving out the vertex and edge arrays every frozen copy has.
+     *
+     *  @return the size in bytes
+     */
+    public long adjacencyBytes() {
+        return data.length + 4L * (start.length + firstEdge.length);
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int getVertexCount() {
+        return vertices.length;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int getEdgeCount() {
+        return edges.length;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public GraphNode getVertex(int v) {
+        return vertices[v];
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public GraphEdge getEdge(int e) {
+        return edges[e];
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int indexOf(GraphNode vertex) {
+        if(vertex == null || vertex.id < 0 || vertex.id >= vertexIndex.length) {
+            return -1;
+        }
+        return vertexIndex[vertex.id];
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int indexOf(GraphEdge edge) {
+        if(edge == null || edge.id < 0 || edge.id >= edgeIndex.length) {
+            return -1;
+        }
+        return edgeIndex[edge.id];
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int degree(int v) {
+        return (int) readVarint(start[v]);
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int neighborAt(int v, int i) {
+        return (int) locate(v, i);
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int edgeAt(int v, int i) {
+        long r = locate(v, i);
+        return edgeOf(v, degree(v), i, (int) r, (int) (r >>> 32));
+    }
+
+    /**
+     *  Decodes the list once instead of once per entry.
+     *
+     *  @param v the vertex index
+     *  @param action what to do with each neighbor index
+     */
+    @Override
+    public void forEachNeighbor(int v, IntConsumer action) {
+        long r = readVarint(start[v]);
+        int d = (int) r;
+        int pos = blockAt(d, (int) (r >>> 32), 0);
+        int w = 0;
+        for(int i = 0; i < d; i++) {
+            r = readVarint(pos);
+            pos = (int) (r >>> 32);
+            int z = (int) r;
+            w = (i % BLOCK == 0) ? v + ((z >>> 1) ^ -(z & 1)) : w + z;
+            if(w <= v) {
+                pos = (int) (readVarint(pos) >>> 32);
+            }
+            action.accept(w);
+        }
+    }
+
+    /**
+     *  Decodes the list once instead of once per entry.
+     *
+     *  @param v the vertex index
+     *  @param action what to do with each edge index
+     */
+    @Override
+    public void forEachIncidentEdge(int v, IntConsumer action) {
+        long r = readVarint(start[v]);
+        int d = (int) r;
+        int pos = blockAt(d, (int) (r >>> 32), 0);
+        int w = 0;
+        for(int i = 0; i < d; i++) {
+            r = readVarint(pos);
+            pos = (int) (r >>> 32);
+            int z = (int) r;
+            w = (i % BLOCK == 0) ? v + ((z >>> 1) ^ -(z & 1)) : w + z;
+            action.accept(edgeOf(v, d, i, w, pos));
+            if(w <= v) {
+                pos = (int) (readVarint(pos) >>> 32);
+            }
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int firstEnd(int e) {
+        //the last vertex whose range starts at or before e
+        int lo = 0;
+        int hi = vertices.length - 1;
+        while(lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if(firstEdge[mid] <= e) lo = mid;
+            else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int secondEnd(int e) {
+        int u = firstEnd(e);
+        int w = neighborAt(u, degree(u) - (firstEdge[u + 1] - e));
+        //entries before the higher neighbors are self loops here
+        return (w > u) ? w : u;
+    }
+
+    /**
+     *  Lists are sorted, so this skips to the right block of the shorter
+     *  one by binary search and decodes only that block.
+     *
+     *  @param u the first vertex index
+     *  @param v the second vertex index
+     *  @return the index of a connecting edge, or -1 if there is none
+     */
+    @Override
+    public int findEdge(int u, int v) {
+        if(degree(v) < degree(u)) {
+            int tmp = u; u = v; v = tmp;
+        }
+        long r = readVarint(start[u]);
+        int d = (int) r;
+        int table = (int) (r >>> 32);
+        if(d == 0) {
+            return -1;
+        }
+
+        //the last block whose first neighbor is at most v
+        int lo = 0;
+        int hi = (d - 1) / BLOCK;
+        while(lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            int z = (int) readVarint(blockAt(d, table, mid));
+            if(u + ((z >>> 1) ^ -(z & 1)) <= v) lo = mid;
+            else hi = mid - 1;
+        }
+
+        int pos = blockAt(d, table, lo);
+        int w = 0;
+        for(int i = lo * BLOCK, end = Math.min(d, i + BLOCK); i < end; i++) {
+            r = readVarint(pos);
+            pos = (int) (r >>> 32);
+            int z = (int) r;
+            w = (i % BLOCK == 0) ? u + ((z >>> 1) ^ -(z & 1)) : w + z;
+            if(w == v) {
+                return edgeOf(u, d, i, w, pos);
+            }
+            if(w > v) {
+                return -1;
+            }
+            if(w <= u) {
+                pos = (int) (readVarint(pos) >>> 32);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     *  Main method that checks a compressed copy against the CSR copy.
+     *
+     *  @param args command line arguments
+     */
+    public static void main(String[] args) {
+        ThreeTenGraph graph = new ThreeTenGraph();
+        GraphNode[] nodes = new GraphNode[5];
+        for(int i = 0; i < nodes.length; i++) {
+            nodes[i] = new GraphNode(i);
+            graph.addVertex(nodes[i]);
+        }
+        graph.addEdge(new GraphEdge(0), nodes[0], nodes[1]);
+        graph.addEdge(new GraphEdge(1), nodes[2], nodes[0]);
+        graph.addEdge(new GraphEdge(2), nodes[3], nodes[3]);
+        graph.addEdge(new GraphEdge(9), nodes[3], nodes[0]);
+
+        ThreeTenCompressedGraph small = graph.freezeCompressed(ThreeTenOrdering.NONE);
+        if(small.getVertexCount() == 5 && small.getEdgeCount() == 4 && small.degree(nodes[0]) == 3
+            && small.degree(nodes[4]) == 0 && small.findEdge(nodes[0], nodes[3]).id == 9
+            && small.findEdge(nodes[1], nodes[2]) == null && small.getOpposite(nodes[3], new GraphEdge(2)) == nodes[3]
+            && small.getEndpoints(new GraphEdge(1)).contains(nodes[2])) {
+            System.out.println("Yay 1");
+        }
+
+        //a large sparse graph with mostly short-range edges, plus some self loops
+        int n = 20000;
+        Random random = new Random(310);
+        ThreeTenGraph big = new ThreeTenGraph();
+        ArrayList<GraphNode> list = new ArrayList<>();
+        for(int i = 0; i < n; i++) {
+            list.add(new GraphNode(i));
+        }
+        big.addVertices(list);
+        int[] src = new int[8 * n];
+        int[] dst = new int[8 * n];
+        for(int k = 0; k < src.length; k++) {
+            src[k] = k / 8;
+            dst[k] = (k % 97 == 0) ? random.nextInt(n) : (k / 8 + 1 + random.nextInt(60)) % n;
+        }
+        big.addEdges(src, dst);
+        for(int k = 0; k < 10; k++) {
+            big.addEdge(new GraphEdge(big.getEdgeIds().allocate()), list.get(k * 7), list.get(k * 7));
+        }
+
+        ThreeTenCsrGraph csr = big.freeze(ThreeTenOrdering.RCM);
+        ThreeTenCompressedGraph packed = new ThreeTenCompressedGraph(csr);
+        boolean same = packed.getVertexCount() == n && packed.getEdgeCount() == csr.getEdgeCount();
+        for(int v = 0; same && v < n; v++) {
+            HashSet<Long> expected = new HashSet<>();
+            for(int i = 0; i < csr.degree(v); i++) {
+                expected.add((long) csr.getEdge(csr.edgeAt(v, i)).id << 32 | csr.getVertex(csr.neighborAt(v, i)).id);
+            }
+            HashSet<Long> found = new HashSet<>();
+            int[] count = {0};
+            int u = packed.indexOf(csr.getVertex(v));
+            for(int i = 0; i < packed.degree(u); i++) {
+                found.add((long) packed.getEdge(packed.edgeAt(u, i)).id << 32 | packed.getVertex(packed.neighborAt(u, i)).id);
+            }
+            packed.forEachIncidentEdge(u, e -> count[0]++);
+            same &= expected.equals(found) && count[0] == csr.degree(v);
+        }
+        if(same) {
+            System.out.println("Yay 2");
+        }
+
+        boolean edgesOk = true;
+        for(GraphEdge e : csr.getEdges()) {
+            GraphEdge back = packed.findEdge(csr.getEndpoints(e).getFirst(), csr.getEndpoints(e).getSecond());
+            edgesOk &= back != null && new HashSet<>(packed.getEndpoints(e)).equals(new HashSet<>(csr.getEndpoints(e)))
+                && new HashSet<>(packed.getEndpoints(back)).equals(new HashSet<>(csr.getEndpoints(e)));
+        }
+        if(edgesOk && packed.findEdge(list.get(0), list.get(n / 2)) == null) {
+            System.out.println("Yay 3");
+        }
+
+        if(2 * packed.adjacencyBytes() <= csr.adjacencyBytes()) {
+            System.out.println("Yay 4");
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,740 @@
+import edu.uci.ics.jung.graph.Graph;
+import edu.uci.ics.jung.graph.UndirectedGraph;
+
+import edu.uci.ics.jung.graph.util.Pair;
+import edu.uci.ics.jung.graph.util.EdgeType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntConsumer;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ *  A thread-safe ThreeTenGraph. Every mutation takes an exclusive write
+ *  lock and every read that walks the graph's tables (contains, degree,
+ *  findEdge, getNeighbors, ...) takes the shared read lock, since those
+ *  tables (hash probes, adjacency arrays) are not safe to read while a
+ *  writer changes them. Only the vertex and edge counts, which read a
+ *  single field, use a lock-free optimistic read. Methods that return
+ *  collections return a copy made under the read lock, so callers can
+ *  iterate it while other threads keep editing.
+ *
+ *  <p>The degree/neighborAt/edgeAt cursor is only consistent while no
+ *  writer is active; concurrent readers should use forEachNeighbor,
+ *  forEachIncidentEdge or getNeighbors, which see a single version.
+ *
+ *  <p>Writers are serialized: one lock covers the whole graph rather
+ *  than one per vertex stripe. This is less than parallel edge inserts
+ *  from several workers. An insert into the wrapped ThreeTenGraph
+ *  touches two adjacency lists and also the paged edge and endpoint
+ *  tables, the edge set, the id allocator, the version and journal and
+ *  the listeners, all shared by every insert. Locks striped by vertex
+ *  would still need a global lock around those, so they would add lock
+ *  traffic without letting two inserts overlap; real parallel inserts
+ *  need concurrent tables under the graph, not a wrapper. What this
+ *  class does give is that racing writers stay linearizable (see the
+ *  tests in main), and that a reader such as a coloring run gets a
+ *  consistent copy (freeze) while the GUI keeps editing. Any number of
+ *  readers run in parallel with each other, but not with a writer.
+ */
+class ThreeTenConcurrentGraph implements Graph<GraphNode,GraphEdge>, UndirectedGraph<GraphNode,GraphEdge>, ThreeTenAdjacency {
+    /**
+     *  The graph doing the real work, only touched under the lock.
+     */
+    private final ThreeTenGraph graph;
+
+    /**
+     *  Guards graph.
+     */
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     *  Constructs an empty thread-safe graph.
+     */
+    public ThreeTenConcurrentGraph() {
+        this(new ThreeTenGraph());
+    }
+
+    /**
+     *  Makes an existing graph thread-safe. The graph must not be used
+     *  directly afterwards, only through this wrapper.
+     *
+     *  @param graph the graph to wrap
+     */
+    public ThreeTenConcurrentGraph(ThreeTenGraph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     *  Runs a count, optimistically first and under the read lock if a
+     *  writer got in the way. The count must only read a single field
+     *  (a size), never walk a table: the optimistic read runs with no
+     *  lock at all and is only checked afterwards.
+     *
+     *  @param op the count to run
+     *  @return the count
+     */
+    private int readCount(IntSupplier op) {
+        long stamp = lock.tryOptimisticRead();
+        if(stamp != 0) {
+            int result = op.getAsInt();
+            if(lock.validate(stamp)) {
+                return result;
+            }
+        }
+        return readIntLocked(op);
+    }
+
+    /**
+     *  Runs an int read under the read lock.
+     *
+     *  @param op the read to run
+     *  @return the result of the read
+     */
+    private int readIntLocked(IntSupplier op) {
+        long stamp = lock.readLock();
+        try {
+            return op.getAsInt();
+        }
+        finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     *  Runs a read under the read lock.
+     *
+     *  @param <R> the result type
+     *  @param op the read to run
+     *  @return the result of the read
+     */
+    private <R> R readLocked(Supplier<R> op) {
+        long stamp = lock.readLock();
+        try {
+            return op.get();
+        }
+        finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     *  Runs a mutation under the write lock.
+     *
+     *  @param op the mutation to run
+     *  @return the result of the mutation
+     */
+    private boolean write(Supplier<Boolean> op) {
+        long stamp = lock.writeLock();
+        try {
+            return op.get();
+        }
+        finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     *  Copies a collection (null stays null).
+     *
+     *  @param <T> the element type
+     *  @param c the collection to copy
+     *  @return the copy
+     */
+    private static <T> Collection<T> copy(Collection<T> c) {
+        return (c == null) ? null : new ArrayList<>(c);
+    }
+
+    /**
+     *  Freezes the current version of the graph into a CSR copy.
+     *
+     *  @return the frozen copy
+     */
+    public ThreeTenCsrGraph freeze() {
+        return readLocked(() -> graph.freeze());
+    }
+
+    /**
+     *  Freezes the current version of the graph into a CSR copy with its
+     *  vertices in the given order.
+     *
+     *  @param ordering how to order the vertices
+     *  @return the frozen copy
+     */
+    public ThreeTenCsrGraph freeze(ThreeTenOrdering ordering) {
+        return readLocked(() -> graph.freeze(ordering));
+    }
+
+    /**
+     *  Returns the number of successful changes made so far.
+     *
+     *  @return the version of the graph
+     */
+    public long getVersion() {
+        return readLocked(() -> graph.getVersion());
+    }
+
+    /**
+     *  Starts telling a listener about every change. The listener is
+     *  called while the writer still holds the write lock, so it must not
+     *  wait for other threads that use this graph.
+     *
+     *  @param listener the listener to add
+     */
+    public void addListener(ThreeTenGraphListener listener) {
+        write(() -> { graph.addListener(listener); return true; });
+    }
+
+    /**
+     *  Stops telling a listener about changes.
+     *
+     *  @param listener the listener to remove
+     *  @return true if it was listening
+     */
+    public boolean removeListener(ThreeTenGraphListener listener) {
+        return write(() -> graph.removeListener(listener));
+    }
+
+    /**
+     *  Keeps a journal of the most recent changes, see ThreeTenGraph.setJournalCapacity.
+     *
+     *  @param capacity how many changes to keep
+     */
+    public void setJournalCapacity(int capacity) {
+        write(() -> { graph.setJournalCapacity(capacity); return true; });
+    }
+
+    /**
+     *  Returns the changes made after a version, see ThreeTenGraph.changesSince.
+     *
+     *  @param since a version returned by getVersion earlier
+     *  @return the changes, or null if they are not all known
+     */
+    public List<ThreeTenGraphEvent> changesSince(long since) {
+        return readLocked(() -> graph.changesSince(since));
+    }
+
+    //********************************************************************************
+    //   mutators (write lock)
+    //********************************************************************************
+
+    /**
+     *  {@inheritDoc}
+     */
+    public boolean addVertex(GraphNode vertex) {
+        return write(() -> graph.addVertex(vertex));
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public boolean removeVertex(GraphNode vertex) {
+        return write(() -> graph.removeVertex(vertex));
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public boolean addEdge(GraphEdge e, GraphNode v1, GraphNode v2) {
+        return write(() -> graph.addEdge(e, v1, v2));
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public boolean addEdge(GraphEdge e, GraphNode v1, GraphNode v2, EdgeType edgeType) {
+        return write(() -> graph.addEdge(e, v1, v2, edgeType));
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public boolean addEdge(GraphEdge edge, Collection<? extends GraphNode> vertices) {
+        return write(() -> graph.addEdge(edge, vertices));
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public boolean addEdge(GraphEdge edge, Collection<? extends GraphNode> vertices, EdgeType edgeType) {
+        return write(() -> graph.addEdge(edge, vertices, edgeType));
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public boolean removeEdge(GraphEdge edge) {
+        return write(() -> graph.removeEdge(edge));
+    }
+
+    //********************************************************************************
+    //   constant-time reads (counts optimistic, the rest under the read lock)
+    //********************************************************************************
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int getVertexCount() { return readCount(() -> graph.getVertexCount()); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int getEdgeCount() { return readCount(() -> graph.getEdgeCount()); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int getEdgeCount(EdgeType edgeType) { return readCount(() -> graph.getEdgeCount(edgeType)); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public boolean containsVertex(GraphNode vertex) { return readLocked(() -> graph.containsVertex(vertex)); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public boolean containsEdge(GraphEdge edge) { return readLocked(() -> graph.containsEdge(edge)); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int getNeighborCount(GraphNode vertex) { return readIntLocked(() -> graph.getNeighborCount(vertex)); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int degree(GraphNode vertex) { return readIntLocked(() -> graph.degree(vertex)); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int inDegree(GraphNode vertex) { return degree(vertex); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int outDegree(GraphNode vertex) { return degree(vertex); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int getPredecessorCount(GraphNode vertex) { return degree(vertex); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int getSuccessorCount(GraphNode vertex) { return degree(vertex); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public Pair<GraphNode> getEndpoints(GraphEdge edge) { return readLocked(() -> graph.getEndpoints(edge)); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public GraphNode getOpposite(GraphNode vertex, GraphEdge edge) { return readLocked(() -> graph.getOpposite(vertex, edge)); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public GraphEdge findEdge(GraphNode v1, GraphNode v2) { return readLocked(() -> graph.findEdge(v1, v2)); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public boolean isNeighbor(GraphNode v1, GraphNode v2) { return findEdge(v1, v2) != null; }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public boolean isPredecessor(GraphNode v1, GraphNode v2) { return isNeighbor(v1, v2); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public boolean isSuccessor(GraphNode v1, GraphNode v2) { return isNeighbor(v1, v2); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public boolean isIncident(GraphNode vertex, GraphEdge edge) {
+        Pair<GraphNode> p = getEndpoints(edge);
+        return p != null && (p.getFirst().equals(vertex) || p.getSecond().equals(vertex));
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public GraphNode getVertex(int v) { return readLocked(() -> graph.getVertex(v)); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public GraphEdge getEdge(int e) { return readLocked(() -> graph.getEdge(e)); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int indexOf(GraphNode vertex) { return readIntLocked(() -> graph.indexOf(vertex)); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int indexOf(GraphEdge edge) { return readIntLocked(() -> graph.indexOf(edge)); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int degree(int v) { return readIntLocked(() -> graph.degree(v)); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int neighborAt(int v, int i) { return readIntLocked(() -> graph.neighborAt(v, i)); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int edgeAt(int v, int i) { return readIntLocked(() -> graph.edgeAt(v, i)); }
+
+    //********************************************************************************
+    //   reads that walk or copy a collection (read lock)
+    //********************************************************************************
+
+    /**
+     *  Visits the neighbors of a vertex as of a single version of the graph.
+     *
+     *  @param v the node id
+     *  @param action what to do with each neighbor id
+     */
+    public void forEachNeighbor(int v, IntConsumer action) {
+        long stamp = lock.readLock();
+        try {
+            graph.forEachNeighbor(v, action);
+        }
+        finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     *  Visits the incident edges of a vertex as of a single version of the graph.
+     *
+     *  @param v the node id
+     *  @param action what to do with each edge id
+     */
+    public void forEachIncidentEdge(int v, IntConsumer action) {
+        long stamp = lock.readLock();
+        try {
+            graph.forEachIncidentEdge(v, action);
+        }
+        finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public Collection<GraphEdge> getEdges() { return readLocked(() -> copy(graph.getEdges())); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public Collection<GraphEdge> getEdges(EdgeType edgeType) { return readLocked(() -> copy(graph.getEdges(edgeType))); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public Collection<GraphNode> getVertices() { return readLocked(() -> copy(graph.getVertices())); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public Collection<GraphNode> getNeighbors(GraphNode vertex) { return readLocked(() -> graph.getNeighbors(vertex)); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public Collection<GraphEdge> getIncidentEdges(GraphNode vertex) { return readLocked(() -> graph.getIncidentEdges(vertex)); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public Collection<GraphNode> getIncidentVertices(GraphEdge edge) { return readLocked(() -> graph.getIncidentVertices(edge)); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public Collection<GraphEdge> findEdgeSet(GraphNode v1, GraphNode v2) { return readLocked(() -> graph.findEdgeSet(v1, v2)); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public Collection<GraphNode> getPredecessors(GraphNode vertex) { return getNeighbors(vertex); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public Collection<GraphNode> getSuccessors(GraphNode vertex) { return getNeighbors(vertex); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public Collection<GraphEdge> getInEdges(GraphNode vertex) { return getIncidentEdges(vertex); }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public Collection<GraphEdge> getOutEdges(GraphNode vertex) { return getIncidentEdges(vertex); }
+
+    //********************************************************************************
+    //   undirected-only answers (no state needed)
+    //********************************************************************************
+
+    /**
+     *  {@inheritDoc}
+     */
+    public GraphNode getSource(GraphEdge directedEdge) { return null; }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public GraphNode getDest(GraphEdge directedEdge) { return null; }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public boolean isSource(GraphNode vertex, GraphEdge edge) { return false; }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public boolean isDest(GraphNode vertex, GraphEdge edge) { return false; }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public EdgeType getEdgeType(GraphEdge edge) { return EdgeType.UNDIRECTED; }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public EdgeType getDefaultEdgeType() { return EdgeType.UNDIRECTED; }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int getIncidentCount(GraphEdge edge) { return 2; }
+
+    /**
+     *  Stress tests. First, writer threads add and remove edges on disjoint
+     *  vertex pairs while reader threads take neighborhoods. Every operation
+     *  must look atomic: writers always read their own writes back, readers
+     *  never see a half-inserted edge (a neighbor without the edge, or
+     *  duplicates), and the final graph is exactly the union of what each
+     *  writer kept. Then writers race on the same pairs: exactly one add of
+     *  each pair wins, and the successful calls form a sequential history
+     *  that ends in the final graph.
+     *
+     *  @param args command line arguments
+     *  @throws InterruptedException if interrupted while joining threads
+     */
+    public static void main(String[] args) throws InterruptedException {
+        final int numNodes = 64;
+        final int numWriters = 4;
+        final int numReaders = 4;
+        final int opsPerWriter = 200000;
+
+        ThreeTenConcurrentGraph graph = new ThreeTenConcurrentGraph();
+        GraphNode[] nodes = new GraphNode[numNodes];
+        for(int i = 0; i < numNodes; i++) {
+            nodes[i] = new GraphNode(i);
+            graph.addVertex(nodes[i]);
+        }
+
+        AtomicBoolean failed = new AtomicBoolean(false);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Set<Integer>> kept = new ArrayList<>();
+
+        Thread[] writers = new Thread[numWriters];
+        for(int t = 0; t < numWriters; t++) {
+            final int me = t;
+            kept.add(new HashSet<>());
+            writers[t] = new Thread(() -> {
+                java.util.Random rand = new java.util.Random(me);
+                for(int op = 0; op < opsPerWriter; op++) {
+                    //this writer owns the pairs (u,v), u<v, with (u+v) % numWriters == me
+                    int u = rand.nextInt(numNodes);
+                    int v = rand.nextInt(numNodes);
+                    if(u == v || (u + v) % numWriters != me) continue;
+                    if(u > v) { int tmp = u; u = v; v = tmp; }
+                    int id = u * numNodes + v;
+
+                    if(kept.get(me).contains(id)) {
+                        if(!graph.removeEdge(new GraphEdge(id)) || graph.getNeighbors(nodes[u]).contains(nodes[v])) {
+                            failed.set(true);
+                        }
+                        kept.get(me).remove(id);
+                    }
+                    else {
+                        if(!graph.addEdge(new GraphEdge(id), nodes[u], nodes[v]) || !graph.getNeighbors(nodes[v]).contains(nodes[u])) {
+                            failed.set(true);
+                        }
+                        kept.get(me).add(id);
+                    }
+                }
+            });
+        }
+
+        Thread[] readers = new Thread[numReaders];
+        for(int t = 0; t < numReaders; t++) {
+            final int me = t;
+            readers[t] = new Thread(() -> {
+                java.util.Random rand = new java.util.Random(100 + me);
+                while(writing.get()) {
+                    GraphNode n = nodes[rand.nextInt(numNodes)];
+                    Collection<GraphNode> nbrs = graph.getNeighbors(n);
+                    if(new HashSet<>(nbrs).size() != nbrs.size()) {
+                        failed.set(true);
+                    }
+                    //every neighbor entry came with its edge
+                    graph.forEachIncidentEdge(n.getId(), e -> {
+                        int u = e / numNodes;
+                        int v = e % numNodes;
+                        if(u != n.getId() && v != n.getId()) {
+                            failed.set(true);
+                        }
+                    });
+                    graph.getEdgeCount();
+                }
+            });
+        }
+
+        for(Thread t : readers) t.start();
+        for(Thread t : writers) t.start();
+        for(Thread t : writers) t.join();
+        writing.set(false);
+        for(Thread t : readers) t.join();
+
+        HashSet<Integer> expected = new HashSet<>();
+        for(Set<Integer> k : kept) expected.addAll(k);
+        HashSet<Integer> actual = new HashSet<>();
+        for(GraphEdge e : graph.getEdges()) actual.add(e.getId());
+
+        int entries = 0;
+        for(GraphNode n : nodes) entries += graph.degree(n);
+
+        if(!failed.get() && expected.equals(actual) && entries == 2 * expected.size()) {
+            System.out.println("Yay 1");
+        }
+
+        //now the writers race on the same pairs; the listener runs under
+        //the write lock, so it records the successful changes in the order
+        //they took effect
+        final int small = 8;
+        ThreeTenConcurrentGraph contended = new ThreeTenConcurrentGraph();
+        GraphNode[] few = new GraphNode[small];
+        for(int i = 0; i < small; i++) {
+            few[i] = new GraphNode(i);
+            contended.addVertex(few[i]);
+        }
+        List<ThreeTenGraphEvent> history = new ArrayList<>();
+        contended.addListener(history::add);
+        AtomicInteger nextId = new AtomicInteger();
+        int pairs = small * (small - 1) / 2;
+        int[][] addWins = new int[numWriters][pairs];
+        int[] successes = new int[numWriters];
+        CountDownLatch go = new CountDownLatch(1);
+        CyclicBarrier added = new CyclicBarrier(numWriters);
+
+        Thread[] racers = new Thread[numWriters];
+        for(int t = 0; t < numWriters; t++) {
+            final int me = t;
+            racers[t] = new Thread(() -> {
+                try {
+                    go.await();
+                    //every racer adds every pair, in the same order
+                    for(int u = 0, p = 0; u < small; u++) {
+                        for(int v = u + 1; v < small; v++, p++) {
+                            if(contended.addEdge(new GraphEdge(nextId.getAndIncrement()), few[u], few[v])) {
+                                addWins[me][p]++;
+                                successes[me]++;
+                            }
+                        }
+                    }
+                    added.await();
+                }
+                catch(InterruptedException | BrokenBarrierException e) {
+                    return;
+                }
+                //once all of them are done, they add and removes random pairs that the others hit too
+                java.util.Random rand = new java.util.Random(200 + me);
+                for(int op = 0; op < 20000; op++) {
+                    int u = rand.nextInt(small);
+                    int v = rand.nextInt(small);
+                    if(u == v) continue;
+                    if(rand.nextBoolean()) {
+                        if(contended.addEdge(new GraphEdge(nextId.getAndIncrement()), few[u], few[v])) {
+                            successes[me]++;
+                        }
+                    }
+                    else {
+                        GraphEdge e = contended.findEdge(few[u], few[v]);
+                        if(e != null && contended.removeEdge(e)) {
+                            successes[me]++;
+                        }
+                    }
+                }
+            });
+            racers[t].start();
+        }
+        go.countDown();
+        for(Thread t : racers) t.join();
+
+        boolean oneWinner = true;
+        for(int p = 0; p < pairs; p++) {
+            int winners = 0;
+            for(int t = 0; t < numWriters; t++) winners += addWins[t][p];
+            oneWinner &= winners == 1;
+        }
+
+        //replay the history one change at a time: each add must find its
+        //pair free and each remove must find it taken
+        boolean sequential = true;
+        HashSet<Long> present = new HashSet<>();
+        for(ThreeTenGraphEvent event : history) {
+            int u = event.getEndpoints().getFirst().getId();
+            int v = event.getEndpoints().getSecond().getId();
+            long key = ((long) Math.min(u, v) << 32) | Math.max(u, v);
+            if(event.getType() == ThreeTenGraphEvent.Type.EDGE_ADDED) {
+                sequential &= present.add(key);
+            }
+            else {
+                sequential &= present.remove(key);
+            }
+        }
+        int total = 0;
+        for(int s : successes) total += s;
+        for(int u = 0; u < small; u++) {
+            for(int v = u + 1; v < small; v++) {
+                sequential &= contended.isNeighbor(few[u], few[v]) == present.contains(((long) u << 32) | v);
+            }
+        }
+        if(oneWinner && sequential && total == history.size() && contended.getEdgeCount() == present.size()) {
+            System.out.println("Yay 2");
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,363 @@
+import edu.uci.ics.jung.graph.Graph;
+
+import edu.uci.ics.jung.graph.util.Pair;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ *  A frozen, read-only copy of an undirected graph stored in compressed
+ *  sparse row (CSR) form. Vertex v's neighbor entries live in
+ *  neighbors[offsets[v]] .. neighbors[offsets[v+1]-1], sorted by neighbor
+ *  index, with the connecting edge at the same position in edgeIds.
+ *
+ *  <p>The GraphNode and GraphEdge objects are shared with the graph the
+ *  copy was made from, so colors and costs set while running an algorithm
+ *  on the copy show up in the original.
+ */
+class ThreeTenCsrGraph extends ThreeTenAbstractGraph {
+    /**
+     *  The vertices, by vertex index.
+     */
+    private final GraphNode[] vertices;
+
+    /**
+     *  The edges, by edge index.
+     */
+    private final GraphEdge[] edges;
+
+    /**
+     *  Start of each vertex's neighbor run; offsets[n] is the total number of entries.
+     */
+    private final int[] offsets;
+
+    /**
+     *  Neighbor vertex indexes, grouped by vertex.
+     */
+    private final int[] neighbors;
+
+    /**
+     *  Edge indexes parallel to neighbors.
+     */
+    private final int[] edgeIds;
+
+    /**
+     *  Endpoints of edge e are ends[2*e] and ends[2*e+1].
+     */
+    private final int[] ends;
+
+    /**
+     *  Maps GraphNode.id to vertex index (-1 for ids not in the graph).
+     */
+    private final int[] vertexIndex;
+
+    /**
+     *  Maps GraphEdge.id to edge index (-1 for ids not in the graph).
+     */
+    private final int[] edgeIndex;
+
+    /**
+     *  Freezes a graph into CSR form, keeping the order the graph lists
+     *  its vertices and edges in: vertex i is the i-th vertex of
+     *  getVertices() and edge e the e-th edge of getEdges().
+     *
+     *  @param graph the graph to copy
+     */
+    public ThreeTenCsrGraph(Graph<GraphNode,GraphEdge> graph) {
+        this(graph, graph.getVertices(), false);
+    }
+
+    /**
+     *  Freezes a graph into CSR form with the vertices laid out in a
+     *  given order. Edges are numbered by their lower endpoint index, so
+     *  they follow the vertex order too.
+     *
+     *  @param graph the graph to copy
+     *  @param order every vertex of the graph, in the order to store them
+     */
+    public ThreeTenCsrGraph(Graph<GraphNode,GraphEdge> graph, Collection<GraphNode> order) {
+        this(graph, order, true);
+    }
+
+    /**
+     *  Freezes a graph into CSR form.
+     *
+     *  @param graph the graph to copy
+     *  @param order every vertex of the graph, in the order to store them
+     *  @param byLowerEnd true to number the edges by lower endpoint index,
+     *      false to keep the order the graph lists them in
+     */
+    private ThreeTenCsrGraph(Graph<GraphNode,GraphEdge> graph, Collection<GraphNode> order, boolean byLowerEnd) {
+        int n = graph.getVertexCount();
+        int m = graph.getEdgeCount();
+
+        vertices = new GraphNode[n];
+        int maxId = -1;
+        int i = 0;
+        for(GraphNode v : order) {
+            vertices[i++] = v;
+            maxId = Math.max(maxId, v.id);
+        }
+        vertexIndex = new int[maxId + 1];
+        Arrays.fill(vertexIndex, -1);
+        for(i = 0; i < n; i++) {
+            vertexIndex[vertices[i].id] = i;
+        }
+
+        //counting sort of the edges by lower endpoint index, if asked for
+        GraphEdge[] listed = graph.getEdges().toArray(new GraphEdge[m]);
+        int[] low = byLowerEnd ? new int[m] : null;
+        int[] next = new int[n + 1];
+        if(byLowerEnd) {
+            for(i = 0; i < m; i++) {
+                Pair<GraphNode> p = graph.getEndpoints(listed[i]);
+                low[i] = Math.min(vertexIndex[p.getFirst().id], vertexIndex[p.getSecond().id]);
+                next[low[i] + 1]++;
+            }
+            for(i = 0; i < n; i++) {
+                next[i + 1] += next[i];
+            }
+        }
+        edges = new GraphEdge[m];
+        ends = new int[2 * m];
+        maxId = -1;
+        for(int k = 0; k < m; k++) {
+            GraphEdge e = listed[k];
+            Pair<GraphNode> p = graph.getEndpoints(e);
+            i = byLowerEnd ? next[low[k]]++ : k;
+            edges[i] = e;
+            ends[2 * i] = vertexIndex[p.getFirst().id];
+            ends[2 * i + 1] = vertexIndex[p.getSecond().id];
+            maxId = Math.max(maxId, e.id);
+        }
+        edgeIndex = new int[maxId + 1];
+        Arrays.fill(edgeIndex, -1);
+        for(i = 0; i < m; i++) {
+            edgeIndex[edges[i].id] = i;
+        }
+
+        //count degrees, then prefix sum into offsets
+        offsets = new int[n + 1];
+        for(int x : ends) {
+            offsets[x + 1]++;
+        }
+        for(i = 0; i < n; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+
+        //pack (neighbor, edge) so each run can be sorted by neighbor in one go
+        long[] packed = new long[2 * m];
+        next = Arrays.copyOf(offsets, n);
+        for(int e = 0; e < m; e++) {
+            int u = ends[2 * e];
+            int v = ends[2 * e + 1];
+            packed[next[u]++] = ((long) v << 32) | e;
+            packed[next[v]++] = ((long) u << 32) | e;
+        }
+
+        neighbors = new int[2 * m];
+        edgeIds = new int[2 * m];
+        for(int v = 0; v < n; v++) {
+            Arrays.sort(packed, offsets[v], offsets[v + 1]);
+        }
+        for(int k = 0; k < packed.length; k++) {
+            neighbors[k] = (int) (packed[k] >>> 32);
+            edgeIds[k] = (int) packed[k];
+        }
+    }
+
+    /**
+     *  Freezes a graph into CSR form with its vertices reordered for
+     *  locality. The vertex at index i is the i-th vertex of the order;
+     *  getVertex still maps each index back to the original GraphNode.
+     *
+     *  @param graph the graph to copy
+     *  @param ordering how to order the vertices
+     *  @return the frozen copy
+     */
+    public static ThreeTenCsrGraph ordered(Graph<GraphNode,GraphEdge> graph, ThreeTenOrdering ordering) {
+        ThreeTenCsrGraph plain = (graph instanceof ThreeTenCsrGraph) ? (ThreeTenCsrGraph) graph : new ThreeTenCsrGraph(graph);
+        if(ordering == ThreeTenOrdering.NONE) {
+            return plain;
+        }
+        int[] perm = ordering.permutation(plain, plain.getVertexCount());
+        GraphNode[] order = new GraphNode[perm.length];
+        for(int i = 0; i < perm.length; i++) {
+            order[i] = plain.vertices[perm[i]];
+        }
+        return new ThreeTenCsrGraph(plain, Arrays.asList(order));
+    }
+
+    /**
+     *  Returns the size of the neighbor and endpoint arrays, leaving out
+     *  the vertex and edge arrays every frozen copy has.
+     *
+     *  @return the size in bytes
+     */
+    public long adjacencyBytes() {
+        return 4L * (offsets.length + neighbors.length + edgeIds.length + ends.length);
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int getVertexCount() {
+        return vertices.length;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int getEdgeCount() {
+        return edges.length;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public GraphNode getVertex(int v) {
+        return vertices[v];
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public GraphEdge getEdge(int e) {
+        return edges[e];
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int indexOf(GraphNode vertex) {
+        if(vertex == null || vertex.id < 0 || vertex.id >= vertexIndex.length) {
+            return -1;
+        }
+        return vertexIndex[vertex.id];
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int indexOf(GraphEdge edge) {
+        if(edge == null || edge.id < 0 || edge.id >= edgeIndex.length) {
+            return -1;
+        }
+        return edgeIndex[edge.id];
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int degree(int v) {
+        return offsets[v + 1] - offsets[v];
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int neighborAt(int v, int i) {
+        return neighbors[offsets[v] + i];
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int edgeAt(int v, int i) {
+        return edgeIds[offsets[v] + i];
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int firstEnd(int e) {
+        return ends[2 * e];
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int secondEnd(int e) {
+        return ends[2 * e + 1];
+    }
+
+    /**
+     *  Neighbor runs are sorted, so this binary searches the shorter one.
+     *
+     *  @param u the first vertex index
+     *  @param v the second vertex index
+     *  @return the index of a connecting edge, or -1 if there is none
+     */
+    @Override
+    public int findEdge(int u, int v) {
+        if(degree(v) < degree(u)) {
+            int tmp = u; u = v; v = tmp;
+        }
+        int k = Arrays.binarySearch(neighbors, offsets[u], offsets[u + 1], v);
+        return (k < 0) ? -1 : edgeIds[k];
+    }
+
+    /**
+     *  Main method that checks a frozen copy against the graph it came from.
+     *
+     *  @param args command line arguments
+     */
+    public static void main(String[] args) {
+        ThreeTenGraph graph = new ThreeTenGraph();
+        GraphNode[] nodes = new GraphNode[6];
+        for(int i = 0; i < nodes.length; i++) {
+            nodes[i] = new GraphNode(i);
+            graph.addVertex(nodes[i]);
+        }
+        graph.addEdge(new GraphEdge(0), nodes[0], nodes[1]);
+        graph.addEdge(new GraphEdge(1), nodes[2], nodes[0]);
+        graph.addEdge(new GraphEdge(2), nodes[3], nodes[2]);
+        graph.addEdge(new GraphEdge(7), nodes[4], nodes[0]);
+
+        ThreeTenCsrGraph csr = graph.freeze();
+
+        if(csr.getVertexCount() == 6 && csr.getEdgeCount() == 4) {
+            System.out.println("Yay 1");
+        }
+        if(csr.degree(nodes[0]) == 3 && csr.degree(nodes[5]) == 0 && csr.getNeighbors(nodes[0]).contains(nodes[4])) {
+            System.out.println("Yay 2");
+        }
+        //a plain freeze keeps the graph's edge order
+        if(csr.findEdge(nodes[0], nodes[4]).id == 7 && csr.findEdge(nodes[1], nodes[2]) == null
+            && csr.getEdge(1).id == 1 && csr.getEdge(3).id == 7) {
+            System.out.println("Yay 3");
+        }
+        boolean rejected = false;
+        try {
+            csr.getOpposite(nodes[1], new GraphEdge(2));
+        }
+        catch(IllegalArgumentException e) {
+            rejected = true;
+        }
+        if(csr.getOpposite(nodes[3], new GraphEdge(2)) == nodes[2] && csr.containsEdge(new GraphEdge(7)) && rejected) {
+            System.out.println("Yay 4");
+        }
+
+        //a path 0-1-2-3-4 (plus the isolated 5) listed in scrambled order
+        ThreeTenGraph path = new ThreeTenGraph();
+        int[] scrambled = {3, 0, 5, 4, 1, 2};
+        for(int id : scrambled) {
+            path.addVertex(nodes[id]);
+        }
+        path.addEdges(new int[] {0, 1, 2, 3}, new int[] {1, 2, 3, 4});
+        boolean local = true;
+        for(ThreeTenOrdering ordering : ThreeTenOrdering.values()) {
+            ThreeTenCsrGraph ordered = path.freeze(ordering);
+            int span = 0;
+            for(int e = 0; e < ordered.getEdgeCount(); e++) {
+                span = Math.max(span, Math.abs(ordered.firstEnd(e) - ordered.secondEnd(e)));
+            }
+            local &= ordered.getVertexCount() == 6 && ordered.getEdgeCount() == 4
+                && ordered.isNeighbor(nodes[2], nodes[3]) && !ordered.isNeighbor(nodes[0], nodes[2])
+                && (ordering == ThreeTenOrdering.NONE || ordering == ThreeTenOrdering.DEGREE || span == 1);
+        }
+        if(local && path.freeze(ThreeTenOrdering.DEGREE).getVertex(5).id == 5) {
+            System.out.println("Yay 5");
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,487 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.function.IntConsumer;
+
+/**
+ *  A frozen, read-only copy of a dense undirected graph stored as an
+ *  adjacency matrix of bits: bit x of row v is set when v and x are
+ *  neighbors. Row v is the words bits[v*words] .. bits[v*words+words-1].
+ *  Testing an edge is a single bit test, and the common neighbors of two
+ *  vertices are found 64 at a time by and-ing their rows.
+ *
+ *  <p>Each row also keeps the number of set bits before each of its
+ *  words, so the i-th neighbor of a vertex, and the rank of a neighbor,
+ *  are found without scanning the row. Edges are numbered by their lower
+ *  endpoint and then by their higher one, so an edge's index follows from
+ *  the rank of its higher endpoint in its lower endpoint's row and no
+ *  edge index is stored per entry. firstEnd(e) is always the lower
+ *  endpoint; the orientation of the original edge is not kept.
+ *
+ *  <p>The matrix takes n*n/8 bytes no matter how many edges there are,
+ *  so it only pays off for dense graphs; ThreeTenGraph.freezeAdaptive
+ *  picks between this and ThreeTenCsrGraph. Self loops can not be stored.
+ *
+ *  <p>As in ThreeTenCsrGraph, the GraphNode and GraphEdge objects are
+ *  shared with the graph the copy was made from.
+ */
+class ThreeTenDenseGraph extends ThreeTenAbstractGraph {
+    /**
+     *  The vertices, by vertex index.
+     */
+    private final GraphNode[] vertices;
+
+    /**
+     *  The edges, by edge index.
+     */
+    private final GraphEdge[] edges;
+
+    /**
+     *  The number of longs in each row.
+     */
+    private final int words;
+
+    /**
+     *  The rows of the adjacency matrix, one after the other.
+     */
+    private final long[] bits;
+
+    /**
+     *  rank[v*words+w] is the number of set bits in row v before word w.
+     */
+    private final int[] rank;
+
+    /**
+     *  The edges from u to its higher neighbors are upperStart[u] .. upperStart[u+1]-1.
+     */
+    private final int[] upperStart;
+
+    /**
+     *  Maps GraphNode.id to vertex index (-1 for ids not in the graph).
+     */
+    private final int[] vertexIndex;
+
+    /**
+     *  Maps GraphEdge.id to edge index (-1 for ids not in the graph).
+     */
+    private final int[] edgeIndex;
+
+    /**
+     *  Builds the matrix for a frozen graph, keeping its vertex order.
+     *
+     *  @param csr the graph to copy
+     *  @throws IllegalArgumentException if the graph has a self loop
+     */
+    public ThreeTenDenseGraph(ThreeTenCsrGraph csr) {
+        int n = csr.getVertexCount();
+        int m = csr.getEdgeCount();
+        words = (n + 63) >>> 6;
+
+        vertices = new GraphNode[n];
+        int maxId = -1;
+        for(int v = 0; v < n; v++) {
+            vertices[v] = csr.getVertex(v);
+            maxId = Math.max(maxId, vertices[v].id);
+        }
+        vertexIndex = new int[maxId + 1];
+        Arrays.fill(vertexIndex, -1);
+        for(int v = 0; v < n; v++) {
+            vertexIndex[vertices[v].id] = v;
+        }
+
+        //set the bits; CSR rows are sorted, so the higher neighbors of u
+        //come out in the order of their edge indexes here
+        bits = new long[n * words];
+        edges = new GraphEdge[m];
+        upperStart = new int[n + 1];
+        int next = 0;
+        for(int u = 0; u < n; u++) {
+            upperStart[u] = next;
+            for(int i = 0, d = csr.degree(u); i < d; i++) {
+                int x = csr.neighborAt(u, i);
+                if(x == u) {
+                    throw new IllegalArgumentException("a dense graph can not have self loops");
+                }
+                bits[u * words + (x >>> 6)] |= 1L << x;
+                if(x > u) {
+                    edges[next++] = csr.getEdge(csr.edgeAt(u, i));
+                }
+            }
+        }
+        upperStart[n] = next;
+
+        maxId = -1;
+        for(GraphEdge e : edges) {
+            maxId = Math.max(maxId, e.id);
+        }
+        edgeIndex = new int[maxId + 1];
+        Arrays.fill(edgeIndex, -1);
+        for(int e = 0; e < m; e++) {
+            edgeIndex[edges[e].id] = e;
+        }
+
+        rank = new int[n * words];
+        for(int v = 0; v < n; v++) {
+            int count = 0;
+            for(int w = 0; w < words; w++) {
+                rank[v * words + w] = count;
+                count += Long.bitCount(bits[v * words + w]);
+            }
+        }
+    }
+
+    /**
+     *  Tells whether the matrix of a graph would take no more room than
+     *  its CSR arrays, which is when the graph has at least about n*n/128
+     *  edges. Graphs with self loops never qualify.
+     *
+     *  @param csr the graph
+     *  @return true if a dense copy is the better choice
+     */
+    public static boolean suits(ThreeTenCsrGraph csr) {
+        long n = csr.getVertexCount();
+        long matrix = 12L * n * ((n + 63) >>> 6);
+        if(matrix > csr.adjacencyBytes()) {
+            return false;
+        }
+        for(int e = 0; e < csr.getEdgeCount(); e++) {
+            if(csr.firstEnd(e) == csr.secondEnd(e)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     *  Counts the set bits of a row before a column.
+     *
+     *  @param v the row
+     *  @param x the column
+     *  @return the number of neighbors of v below x
+     */
+    private int rankBelow(int v, int x) {
+        int k = v * words + (x >>> 6);
+        return rank[k] + Long.bitCount(bits[k] & ((1L << x) - 1));
+    }
+
+    /**
+     *  Finds the k-th set bit of a row.
+     *
+     *  @param v the row
+     *  @param k the rank, 0 to degree(v)-1
+     *  @return the column of the bit
+     */
+    private int select(int v, int k) {
+        //the last word with fewer than k+1 bits before it
+        int lo = 0;
+        int hi = words - 1;
+        while(lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if(rank[v * words + mid] <= k) lo = mid;
+            else hi = mid - 1;
+        }
+        long word = bits[v * words + lo];
+        for(int j = rank[v * words + lo]; j < k; j++) {
+            word &= word - 1;
+        }
+        return (lo << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     *  Returns the index of the edge between two neighbors.
+     *
+     *  @param u one vertex index
+     *  @param v another vertex index, a neighbor of u
+     *  @return the edge index
+     */
+    private int edgeBetween(int u, int v) {
+        if(u > v) {
+            int tmp = u; u = v; v = tmp;
+        }
+        return upperStart[u] + rankBelow(u, v) - rankBelow(u, u);
+    }
+
+    /**
+     *  Tells whether two vertices are neighbors with a single bit test.
+     *
+     *  @param u one vertex index
+     *  @param v another vertex index
+     *  @return true if there is an edge between them
+     */
+    public boolean isNeighbor(int u, int v) {
+        return ((bits[u * words + (v >>> 6)] >>> v) & 1) != 0;
+    }
+
+    /**
+     *  Counts the neighbors two vertices have in common, 64 at a time.
+     *
+     *  @param u one vertex index
+     *  @param v another vertex index
+     *  @return the number of common neighbors
+     */
+    public int commonNeighborCount(int u, int v) {
+        int count = 0;
+        for(int w = 0; w < words; w++) {
+            count += Long.bitCount(bits[u * words + w] & bits[v * words + w]);
+        }
+        return count;
+    }
+
+    /**
+     *  Calls the action with every neighbor two vertices have in common.
+     *
+     *  @param u one vertex index
+     *  @param v another vertex index
+     *  @param action what to do with each common neighbor
+     */
+    public void forEachCommonNeighbor(int u, int v, IntConsumer action) {
+        for(int w = 0; w < words; w++) {
+            long word = bits[u * words + w] & bits[v * words + w];
+            while(word != 0) {
+                action.accept((w << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+    }
+
+    /**
+     *  Returns the size of the matrix and its rank tables, leaving out
+     *  the vertex and edge arrays every frozen copy has.
+     *
+     *  @return the size in bytes
+     */
+    public long adjacencyBytes() {
+        return 8L * bits.length + 4L * (rank.length + upperStart.length);
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int getVertexCount() {
+        return vertices.length;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int getEdgeCount() {
+        return edges.length;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public GraphNode getVertex(int v) {
+        return vertices[v];
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public GraphEdge getEdge(int e) {
+        return edges[e];
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int indexOf(GraphNode vertex) {
+        if(vertex == null || vertex.id < 0 || vertex.id >= vertexIndex.length) {
+            return -1;
+        }
+        return vertexIndex[vertex.id];
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int indexOf(GraphEdge edge) {
+        if(edge == null || edge.id < 0 || edge.id >= edgeIndex.length) {
+            return -1;
+        }
+        return edgeIndex[edge.id];
+    }
+
+    /**
+     *  The rank of the last word plus its popcount.
+     *
+     *  @param v the vertex index
+     *  @return the degree of the vertex
+     */
+    public int degree(int v) {
+        int k = v * words + words - 1;
+        return rank[k] + Long.bitCount(bits[k]);
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int neighborAt(int v, int i) {
+        return select(v, i);
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int edgeAt(int v, int i) {
+        int x = select(v, i);
+        return (x > v) ? upperStart[v] + i - rankBelow(v, v) : edgeBetween(x, v);
+    }
+
+    /**
+     *  Walks the set bits of the row word by word.
+     *
+     *  @param v the vertex index
+     *  @param action what to do with each neighbor index
+     */
+    @Override
+    public void forEachNeighbor(int v, IntConsumer action) {
+        for(int w = 0; w < words; w++) {
+            long word = bits[v * words + w];
+            while(word != 0) {
+                action.accept((w << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+    }
+
+    /**
+     *  Walks the set bits of the row word by word; the edges to higher
+     *  neighbors are consecutive, so only lower ones need a rank lookup.
+     *
+     *  @param v the vertex index
+     *  @param action what to do with each edge index
+     */
+    @Override
+    public void forEachIncidentEdge(int v, IntConsumer action) {
+        int upper = upperStart[v];
+        for(int w = 0; w < words; w++) {
+            long word = bits[v * words + w];
+            while(word != 0) {
+                int x = (w << 6) + Long.numberOfTrailingZeros(word);
+                action.accept((x > v) ? upper++ : edgeBetween(x, v));
+                word &= word - 1;
+            }
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int firstEnd(int e) {
+        //the last vertex whose range starts at or before e
+        int lo = 0;
+        int hi = vertices.length - 1;
+        while(lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if(upperStart[mid] <= e) lo = mid;
+            else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int secondEnd(int e) {
+        int u = firstEnd(e);
+        return select(u, e - upperStart[u] + rankBelow(u, u));
+    }
+
+    /**
+     *  A bit test, then the edge index from the rank.
+     *
+     *  @param u the first vertex index
+     *  @param v the second vertex index
+     *  @return the index of the connecting edge, or -1 if there is none
+     */
+    @Override
+    public int findEdge(int u, int v) {
+        return isNeighbor(u, v) ? edgeBetween(u, v) : -1;
+    }
+
+    /**
+     *  Main method that checks a dense copy against the CSR copy.
+     *
+     *  @param args command line arguments
+     */
+    public static void main(String[] args) {
+        int n = 150;
+        Random random = new Random(310);
+        ThreeTenGraph graph = new ThreeTenGraph();
+        ArrayList<GraphNode> nodes = new ArrayList<>();
+        for(int i = 0; i < n; i++) {
+            nodes.add(new GraphNode(3 * i));
+        }
+        graph.addVertices(nodes);
+        ArrayList<Integer> src = new ArrayList<>();
+        ArrayList<Integer> dst = new ArrayList<>();
+        for(int u = 0; u < n; u++) {
+            for(int v = u + 1; v < n; v++) {
+                if(random.nextInt(2) == 0) {
+                    src.add(3 * u);
+                    dst.add(3 * v);
+                }
+            }
+        }
+        graph.addEdges(src.stream().mapToInt(Integer::intValue).toArray(), dst.stream().mapToInt(Integer::intValue).toArray());
+
+        ThreeTenCsrGraph csr = graph.freeze();
+        ThreeTenAbstractGraph chosen = graph.freezeAdaptive(ThreeTenOrdering.NONE);
+        if(chosen instanceof ThreeTenDenseGraph && chosen.getEdgeCount() == csr.getEdgeCount()
+            && ((ThreeTenDenseGraph) chosen).adjacencyBytes() < csr.adjacencyBytes()) {
+            System.out.println("Yay 1");
+        }
+
+        ThreeTenDenseGraph dense = (ThreeTenDenseGraph) chosen;
+        boolean same = true;
+        for(int v = 0; v < n; v++) {
+            HashSet<Long> expected = new HashSet<>();
+            for(int i = 0; i < csr.degree(v); i++) {
+                expected.add((long) csr.getEdge(csr.edgeAt(v, i)).id << 32 | csr.getVertex(csr.neighborAt(v, i)).id);
+            }
+            int u = dense.indexOf(csr.getVertex(v));
+            HashSet<Long> found = new HashSet<>();
+            for(int i = 0; i < dense.degree(u); i++) {
+                found.add((long) dense.getEdge(dense.edgeAt(u, i)).id << 32 | dense.getVertex(dense.neighborAt(u, i)).id);
+            }
+            HashSet<Long> visited = new HashSet<>();
+            int[] k = {0};
+            int[] nbrs = new int[dense.degree(u)];
+            dense.forEachNeighbor(u, x -> nbrs[k[0]++] = x);
+            k[0] = 0;
+            dense.forEachIncidentEdge(u, e -> visited.add((long) dense.getEdge(e).id << 32 | dense.getVertex(nbrs[k[0]++]).id));
+            same &= expected.equals(found) && expected.equals(visited);
+        }
+        if(same) {
+            System.out.println("Yay 2");
+        }
+
+        boolean edgesOk = true;
+        for(GraphEdge e : csr.getEdges()) {
+            GraphEdge back = dense.findEdge(csr.getEndpoints(e).getFirst(), csr.getEndpoints(e).getSecond());
+            edgesOk &= back == e && new HashSet<>(dense.getEndpoints(e)).equals(new HashSet<>(csr.getEndpoints(e)));
+        }
+        int common = 0;
+        for(int x = 0; x < n; x++) {
+            if(dense.isNeighbor(3, x) && dense.isNeighbor(7, x)) common++;
+        }
+        int[] listed = {0};
+        dense.forEachCommonNeighbor(3, 7, x -> listed[0]++);
+        if(edgesOk && dense.commonNeighborCount(3, 7) == common && listed[0] == common
+            && dense.isNeighbor(3, 7) == csr.isNeighbor(dense.getVertex(3), dense.getVertex(7))) {
+            System.out.println("Yay 3");
+        }
+
+        //sparse graphs, and graphs with self loops, stay in CSR form
+        ThreeTenGraph sparse = new ThreeTenGraph();
+        sparse.addVertices(nodes);
+        sparse.addEdges(new int[] {0, 3}, new int[] {3, 6});
+        graph.addEdge(new GraphEdge(graph.getEdgeIds().allocate()), nodes.get(4), nodes.get(4));
+        if(sparse.freezeAdaptive(ThreeTenOrdering.NONE) instanceof ThreeTenCsrGraph
+            && graph.freezeAdaptive(ThreeTenOrdering.RCM) instanceof ThreeTenCsrGraph) {
+            System.out.println("Yay 4");
+        }
+    }
+}
\ No newline at end of file
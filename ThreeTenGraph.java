@@ -6,9 +6,13 @@ import edu.uci.ics.jung.graph.util.EdgeType;
 
 import org.apache.commons.collections15.Factory;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.ListIterator;
 
 /**
@@ -20,21 +24,119 @@ import java.util.ListIterator;
  * @author Justin Thomas
  *
  */
-class ThreeTenGraph implements Graph<GraphNode,GraphEdge>, UndirectedGraph<GraphNode,GraphEdge> {
+class ThreeTenGraph implements Graph<GraphNode,GraphEdge>, UndirectedGraph<GraphNode,GraphEdge>, ThreeTenAdjacency {
 
     /**
-     * The max number of nodes the graph can hold.
+     * The starting size of the vertex table, it doubles as needed.
      */
-    private static final int MAX_NUMBER_OF_NODES = 200;
+    private static final int DEFAULT_NODE_CAPACITY = 64;
 
     /**
-     * initialize a Linkedlist of the vertices (nodes) in the graph to null.
+     * The starting size of the edge table, it doubles as needed.
      */
-    private LinkedList<GraphNode> nodeList = null;
+    private static final int DEFAULT_EDGE_CAPACITY = 64;
+
     /**
-     * initialize an array of LinkedLists (separate chaining), adjacent list to be null.
+     * The degree at which a vertex gets a hashed neighbor index.
+     * Below this, scanning the adjacency list is just as fast.
      */
-    private LinkedList<Destination>[] adjList = null;
+    private static final int HASH_THRESHOLD = 16;
+
+    /**
+     * The vertices (nodes) in the graph in insertion order. A hash set so
+     * that removeVertex can take a vertex out in constant time.
+     */
+    private LinkedHashSet<GraphNode> nodeList = null;
+    /**
+     * Read-only view of nodeList handed out by getVertices().
+     */
+    private Collection<GraphNode> vertexView = null;
+    /**
+     * initialize an array of ArrayLists (separate chaining), adjacent list to be null.
+     * Indexed by node id; ids do not need to be contiguous, unused slots stay null.
+     */
+    private PagedTable<ArrayList<Destination>> adjList = null;
+    /**
+     * The vertices in the graph, indexed by node id alongside adjList.
+     */
+    private PagedTable<GraphNode> nodeTable = null;
+    /**
+     * Per-vertex hashed index (neighbor id to edge id), indexed by node id
+     * alongside adjList. Null until the vertex's degree reaches HASH_THRESHOLD.
+     */
+    private IntIntHashMap[] nbrIndex = null;
+    /**
+     * The edges in the graph, indexed by edge id alongside endpointTable.
+     */
+    private PagedTable<GraphEdge> edgeTable = null;
+    /**
+     * The endpoints of each edge, indexed by edge id (null where there is no edge).
+     */
+    private PagedTable<Pair<GraphNode>> endpointTable = null;
+    /**
+     * Where each edge's two entries sit in the adjacency lists, indexed by
+     * edge id: edgePos[2*id] in the first endpoint's list and
+     * edgePos[2*id+1] in the second's. Each entry can find its twin in the
+     * other list through this, so removing an edge needs no scan.
+     */
+    private int[] edgePos = null;
+    /**
+     * The edges in the graph in insertion order, updated on every add/remove
+     * (its size is the edge count).
+     */
+    private LinkedHashSet<GraphEdge> edgeSet = null;
+    /**
+     * Read-only view of edgeSet handed out by getEdges().
+     */
+    private Collection<GraphEdge> edgeView = null;
+    /**
+     * The number of successful mutations so far.
+     */
+    private long version = 0;
+    /**
+     * True while the current tables are shared with a snapshot and must be
+     * copied before the next write.
+     */
+    private boolean shared = false;
+    /**
+     * Bumped each time the tables are unshared; a vertex's adjacency list
+     * may only be changed in place if it was created in the current epoch.
+     */
+    private int epoch = 0;
+    /**
+     * The epoch each adjacency list was created in, indexed by node id.
+     */
+    private int[] listEpoch = null;
+    /**
+     * Hands out (and, if it recycles, reuses) node ids for this graph's factories.
+     */
+    private final GraphIdAllocator nodeIds;
+    /**
+     * Hands out (and, if it recycles, reuses) edge ids for this graph's factories.
+     */
+    private final GraphIdAllocator edgeIds;
+    /**
+     * Who to tell about changes. Replaced, never changed, so a listener
+     * may add or remove listeners while being called.
+     */
+    private ThreeTenGraphListener[] listeners = new ThreeTenGraphListener[0];
+    /**
+     * The most recent changes, oldest first from journalHead, or null if
+     * the journal is off.
+     */
+    private ThreeTenGraphEvent[] journal = null;
+    /**
+     * Where the oldest change in the journal is.
+     */
+    private int journalHead = 0;
+    /**
+     * How many changes are in the journal.
+     */
+    private int journalSize = 0;
+    /**
+     * Every change after this version is still in the journal.
+     */
+    private long journalFloor = 0;
 
     /**
      * makes an object that holds a unique end node and edge
@@ -63,43 +165,152 @@ class ThreeTenGraph implements Graph<GraphNode,GraphEdge>, UndirectedGraph<Graph
 
     /**
      * Graph constructor that initializes a linked list of vertices and
-     * a HashTable with a limit of 200 nodes/vertices.
+     * the vertex and edge tables, which grow as larger ids are added.
      */
     public ThreeTenGraph() {
-        nodeList =  new LinkedList<GraphNode>();
-        adjList = (LinkedList<Destination>[]) new LinkedList[MAX_NUMBER_OF_NODES];
+        this(new GraphIdAllocator(), new GraphIdAllocator());
     }
 
     /**
-     * Returns a view of all edges in this graph. In general, this
-     * obeys the Collection contract, and therefore makes no guarantees
-     * about the ordering of the vertices within the set.
-     * @return a Collection view of all edges in this graph
+     * Graph constructor that shares id allocators with the node and edge
+     * factories used to fill the graph (see GraphNode.getFactory). Ids of
+     * removed vertices and edges are given back to them, which reuses
+     * them only if the allocators recycle (see GraphIdAllocator).
+     *
+     * @param nodeIds the allocator for node ids
+     * @param edgeIds the allocator for edge ids
      */
-    public Collection<GraphEdge> getEdges() {
+    public ThreeTenGraph(GraphIdAllocator nodeIds, GraphIdAllocator edgeIds) {
+        this.nodeIds = nodeIds;
+        this.edgeIds = edgeIds;
+        nodeList = new LinkedHashSet<>();
+        vertexView = Collections.unmodifiableSet(nodeList);
+        adjList = new PagedTable<>(DEFAULT_NODE_CAPACITY);
+        nodeTable = new PagedTable<>(DEFAULT_NODE_CAPACITY);
+        nbrIndex = new IntIntHashMap[adjList.length()];
+        listEpoch = new int[adjList.length()];
+        endpointTable = new PagedTable<>(DEFAULT_EDGE_CAPACITY);
+        edgeTable = new PagedTable<>(DEFAULT_EDGE_CAPACITY);
+        edgePos = new int[2 * endpointTable.length()];
+        edgeSet = new LinkedHashSet<>();
+        edgeView = Collections.unmodifiableCollection(edgeSet);
+    }
+
+    /**
+     * Called before every change to the graph. Counts the change and, if a
+     * snapshot still holds the current adjacency lists, starts a new epoch
+     * so that ownedList() copies each list the first time it is changed.
+     * The tables copy their own pages the same way (see PagedTable).
+     */
+    private void beforeWrite() {
+        version++;
+        if(!shared) {
+            return;
+        }
+        epoch++;
+        shared = false;
+    }
+
+    /**
+     * Records a change in the journal and tells the listeners about it.
+     * Does not even make the event if nobody is interested.
+     *
+     * @param type what happened
+     * @param vertex the vertex, for a vertex event
+     * @param edge the edge, for an edge event
+     * @param ends the edge's endpoints, for an edge event
+     */
+    private void changed(ThreeTenGraphEvent.Type type, GraphNode vertex, GraphEdge edge, Pair<GraphNode> ends) {
+        if(journal == null && listeners.length == 0) {
+            return;
+        }
+        ThreeTenGraphEvent event = (vertex != null) ? new ThreeTenGraphEvent(type, version, vertex)
+            : new ThreeTenGraphEvent(type, version, edge, ends);
+
+        if(journal != null) {
+            if(journalSize == journal.length) {
+                //the oldest change falls out, so only later versions stay complete
+                journalFloor = journal[journalHead].getVersion();
+                journal[journalHead] = event;
+                journalHead = (journalHead + 1) % journal.length;
+            }
+            else {
+                journal[(journalHead + journalSize++) % journal.length] = event;
+            }
+        }
 
-        LinkedList<GraphEdge> edges = new LinkedList<>();
+        for(ThreeTenGraphListener listener : listeners) {
+            listener.graphChanged(event);
+        }
+    }
 
-        for(int i = 0; i < nodeList.size(); i++) {
-            GraphNode current = nodeList.get(i);
-            int id = current.id;
+    /**
+     * Returns a vertex's adjacency list for changing, first copying it if
+     * it may still be shared with a snapshot.
+     *
+     * @param id the node id
+     * @return an adjacency list owned by this graph
+     */
+    private ArrayList<Destination> ownedList(int id) {
+        if(listEpoch[id] != epoch) {
+            adjList.set(id, new ArrayList<>(adjList.get(id)));
+            listEpoch[id] = epoch;
+        }
+        return adjList.get(id);
+    }
 
-            Iterator<Destination> itr = adjList[id].iterator();
+    /**
+     * Grows the vertex table (by doubling) until it has a slot for the given id.
+     *
+     * @param id the node id that needs a slot
+     */
+    private void ensureNodeCapacity(int id) {
+        if(id < adjList.length()) {
+            return;
+        }
+        adjList.ensureLength(id + 1);
+        nodeTable.ensureLength(id + 1);
+        int newLength = adjList.length();
+        nbrIndex = Arrays.copyOf(nbrIndex, newLength);
+        listEpoch = Arrays.copyOf(listEpoch, newLength);
+    }
 
-            if (!itr.hasNext()) {
-                continue;
-            }
+    /**
+     * Looks up the adjacency list of a vertex by its id.
+     *
+     * @param vertex the vertex to look up
+     * @return the vertex's adjacency list, or null if the vertex is not in the graph
+     */
+    private ArrayList<Destination> adjacencyOf(GraphNode vertex) {
+        if(vertex == null || vertex.id < 0 || vertex.id >= adjList.length()) {
+            return null;
+        }
+        return adjList.get(vertex.id);
+    }
 
-            do {
-                Destination currentDest = itr.next();
-                if (edges.contains(currentDest.edge)) {
-                    continue;
-                }
-                edges.add(currentDest.edge);
-            } while(itr.hasNext());
+    /**
+     * Grows the edge table (by doubling) until it has a slot for the given id.
+     *
+     * @param id the edge id that needs a slot
+     */
+    private void ensureEdgeCapacity(int id) {
+        if(id < endpointTable.length()) {
+            return;
         }
+        endpointTable.ensureLength(id + 1);
+        edgeTable.ensureLength(id + 1);
+        int newLength = endpointTable.length();
+        edgePos = Arrays.copyOf(edgePos, 2 * newLength);
+    }
 
-        return edges;
+    /**
+     * Returns a view of all edges in this graph. In general, this
+     * obeys the Collection contract, and therefore makes no guarantees
+     * about the ordering of the vertices within the set.
+     * @return a Collection view of all edges in this graph
+     */
+    public Collection<GraphEdge> getEdges() {
+        return edgeView;
     }
 
     /**
@@ -109,7 +320,7 @@ class ThreeTenGraph implements Graph<GraphNode,GraphEdge>, UndirectedGraph<Graph
      * @return a Collection view of all vertices in this graph
      */
     public Collection<GraphNode> getVertices() {
-        return nodeList;
+        return vertexView;
     }
 
     /**
@@ -117,7 +328,7 @@ class ThreeTenGraph implements Graph<GraphNode,GraphEdge>, UndirectedGraph<Graph
      * @return  number of edges in this graph
      */
     public int getEdgeCount() {
-        return getEdges().size();
+        return edgeSet.size();
     }
 
     /**
@@ -135,7 +346,7 @@ class ThreeTenGraph implements Graph<GraphNode,GraphEdge>, UndirectedGraph<Graph
      * @return true iff this graph contains a vertex vertex
      */
     public boolean containsVertex(GraphNode vertex) {
-        if (adjList[vertex.id] != null) {
+        if (adjacencyOf(vertex) != null) {
             return true;
         }
         return false;
@@ -153,14 +364,15 @@ class ThreeTenGraph implements Graph<GraphNode,GraphEdge>, UndirectedGraph<Graph
      */
     public Collection<GraphNode> getNeighbors(GraphNode vertex) {
 
-        if (adjList[vertex.id] == null) {
+        ArrayList<Destination> list = adjacencyOf(vertex);
+        if (list == null) {
             return null;
         }
 
-        LinkedList<GraphNode> neighbors = new LinkedList<GraphNode>();
+        ArrayList<GraphNode> neighbors = new ArrayList<GraphNode>(list.size());
 
-        for(int i = 0; i < adjList[vertex.id].size(); i++) {
-            Destination current = adjList[vertex.id].get(i);
+        for(int i = 0; i < list.size(); i++) {
+            Destination current = list.get(i);
             neighbors.add(current.node);
         }
         return neighbors;
@@ -177,11 +389,12 @@ class ThreeTenGraph implements Graph<GraphNode,GraphEdge>, UndirectedGraph<Graph
      */
     public int getNeighborCount(GraphNode vertex) {
 
-        if (adjList[vertex.id] == null) {
+        ArrayList<Destination> list = adjacencyOf(vertex);
+        if (list == null) {
             return 0;
         }
 
-        return adjList[vertex.id].size();
+        return list.size();
     }
 
     /**
@@ -193,14 +406,15 @@ class ThreeTenGraph implements Graph<GraphNode,GraphEdge>, UndirectedGraph<Graph
      */
     public Collection<GraphEdge> getIncidentEdges(GraphNode vertex) {
 
-        LinkedList<GraphEdge> edges = new LinkedList<GraphEdge>();
-
-        if(adjList[vertex.id] == null) {
+        ArrayList<Destination> list = adjacencyOf(vertex);
+        if(list == null) {
             return null;
         }
 
-        for(int i = 0; i < adjList[vertex.id].size(); i++) {
-            Destination current = adjList[vertex.id].get(i);
+        ArrayList<GraphEdge> edges = new ArrayList<GraphEdge>(list.size());
+
+        for(int i = 0; i < list.size(); i++) {
+            Destination current = list.get(i);
 
             edges.add(current.edge);
 
@@ -213,32 +427,10 @@ class ThreeTenGraph implements Graph<GraphNode,GraphEdge>, UndirectedGraph<Graph
      * @return the endpoints (incident vertices) of edge
      */
     public Pair<GraphNode> getEndpoints(GraphEdge edge) {
-        GraphNode one = null;
-        GraphNode two = null;
-
-        for(int i = 0; i < nodeList.size(); i++) {
-
-            LinkedList<Destination> currentChain = adjList[nodeList.get(i).id];
-            Iterator<Destination> itr = currentChain.iterator();
-
-            if (!itr.hasNext()) {
-                continue;
-            }
-            do {
-                Destination current = itr.next();
-                if(current.edge.id == edge.id) {
-                    if (one == null) {
-                        one = current.node;
-                    }
-                    else if(two == null && one != null) {
-                        two = current.node;
-                        Pair<GraphNode> twoNodes = new Pair<>(one, two);
-                        return twoNodes;
-                    }
-                }
-            }while(itr.hasNext());
+        if(edge == null || edge.id < 0 || edge.id >= endpointTable.length()) {
+            return null;
         }
-        return null;
+        return endpointTable.get(edge.id);
     }
 
     /**
@@ -267,35 +459,38 @@ class ThreeTenGraph implements Graph<GraphNode,GraphEdge>, UndirectedGraph<Graph
      */
     public GraphEdge findEdge(GraphNode v1, GraphNode v2) {
 
-        if(adjList[v1.id] == null || adjList[v1.id].size() == 0) {
-            return  null;
-        }
-        if(adjList[v2.id] == null || adjList[v2.id].size() == 0) {
+        if(adjacencyOf(v1) == null || adjacencyOf(v2) == null) {
             return null;
         }
 
-        GraphEdge connection = null;
-
-        for(int i = 0; i < adjList[v1.id].size(); i++) {
-
-            Destination current = adjList[v1.id].get(i);
-
-            if (current.node == v2) {
-                connection = current.edge;
-            }
+        int e = findEdge(v1.id, v2.id);
+        return (e == -1) ? null : edgeTable.get(e);
+    }
 
+    /**
+     * Finds the edge between two vertices by id. Looks in the
+     * lower-degree vertex: its hashed index if it has one, otherwise
+     * its (then short) adjacency list.
+     *
+     * @param u the first node id (must be in the graph)
+     * @param v the second node id (must be in the graph)
+     * @return the id of the connecting edge, or -1 if there is none
+     */
+    public int findEdge(int u, int v) {
+        if(adjList.get(v).size() < adjList.get(u).size()) {
+            int tmp = u; u = v; v = tmp;
         }
-
-        for(int i = 0; i < adjList[v2.id].size(); i++) {
-
-            Destination current = adjList[v2.id].get(i);
-
-            if(current.node == v1 && connection != null) {
-                return connection;
+        if(nbrIndex[u] != null) {
+            return nbrIndex[u].get(v);
+        }
+        ArrayList<Destination> list = adjList.get(u);
+        for(int i = 0; i < list.size(); i++) {
+            Destination current = list.get(i);
+            if(current.node.id == v) {
+                return current.edge.id;
             }
-
         }
-        return null;
+        return -1;
     }
 
     /**
@@ -322,7 +517,7 @@ class ThreeTenGraph implements Graph<GraphNode,GraphEdge>, UndirectedGraph<Graph
      * If this graph assigns edge types to its edges, the edge type of
      * e will be the default for this graph.
      * See Hypergraph.addEdge() for a listing of possible reasons
-     * for failure.
+     * for failure. This graph does not accept parallel edges.
      * @param e the edge to be added
      * @param v1 the first vertex to be connected
      * @param v2 the second vertex to be connected
@@ -331,22 +526,25 @@ class ThreeTenGraph implements Graph<GraphNode,GraphEdge>, UndirectedGraph<Graph
      * @see #addEdge(Object, Object, Object, EdgeType)
      */
     public boolean addEdge(GraphEdge e, GraphNode v1, GraphNode v2) {
-        if(getIncidentEdges(v1) == null || getIncidentEdges(v2) == null) {
+        if(!containsVertex(v1) || !containsVertex(v2)) {
             return false;
         }
 
-        if (getIncidentEdges(v1).contains(e) || getIncidentEdges(v2).contains(e)) {
+        if (containsEdge(e) || findEdge(v1.id, v2.id) != -1) {
             return false;
         }
 
-        Destination newest = new Destination(v2, e);
+        beforeWrite();
+        edgeIds.claim(e.id);
+        ensureEdgeCapacity(e.id);
+        endpointTable.set(e.id, new Pair<>(v1, v2));
+        edgeTable.set(e.id, e);
+        edgeSet.add(e);
 
-        adjList[v1.id].add(newest);
-
-        newest = new Destination(v1, e);
-
-        adjList[v2.id].add(newest);
+        edgePos[2 * e.id] = addDestination(v1, new Destination(v2, e));
+        edgePos[2 * e.id + 1] = addDestination(v2, new Destination(v1, e));
 
+        changed(ThreeTenGraphEvent.Type.EDGE_ADDED, null, e, endpointTable.get(e.id));
         return true;
     }
 
@@ -356,23 +554,155 @@ class ThreeTenGraph implements Graph<GraphNode,GraphEdge>, UndirectedGraph<Graph
      *
      * @param vertex    the vertex to add
      * @return true if the add is successful, and false otherwise
-     * @throws IllegalArgumentException if vertex is null
+     * @throws IllegalArgumentException if vertex is null or has a negative id
      */
     public boolean addVertex(GraphNode vertex) {
 
-        if (adjList[vertex.id] != null) {
+        if (vertex == null || vertex.id < 0) {
+            throw new IllegalArgumentException("vertex must be non-null with a non-negative id");
+        }
+
+        if (adjacencyOf(vertex) != null) {
             return false;
         }
 
-        adjList[vertex.id] = new LinkedList<>();
+        beforeWrite();
+        nodeIds.claim(vertex.id);
+        ensureNodeCapacity(vertex.id);
+        adjList.set(vertex.id, new ArrayList<>());
+        listEpoch[vertex.id] = epoch;
+        nodeTable.set(vertex.id, vertex);
 
         nodeList.add(vertex);
 
+        changed(ThreeTenGraphEvent.Type.VERTEX_ADDED, vertex, null, null);
         return true;
     }
 
     /**
-     * Removes edge from this graph.
+     * Adds many vertices at once, growing the vertex table only once.
+     * Vertices already in the graph are skipped.
+     *
+     * @param vertices the vertices to add
+     * @return the number of vertices added
+     * @throws IllegalArgumentException if any vertex is null or has a negative id
+     */
+    public int addVertices(Collection<GraphNode> vertices) {
+        int maxId = -1;
+        for(GraphNode v : vertices) {
+            if (v == null || v.id < 0) {
+                throw new IllegalArgumentException("vertex must be non-null with a non-negative id");
+            }
+            maxId = Math.max(maxId, v.id);
+        }
+        if(maxId == -1) {
+            return 0;
+        }
+
+        beforeWrite();
+        ensureNodeCapacity(maxId);
+        int added = 0;
+        for(GraphNode v : vertices) {
+            if(adjList.get(v.id) == null) {
+                nodeIds.claim(v.id);
+                adjList.set(v.id, new ArrayList<>());
+                listEpoch[v.id] = epoch;
+                nodeTable.set(v.id, v);
+                nodeList.add(v);
+                added++;
+                changed(ThreeTenGraphEvent.Type.VERTEX_ADDED, v, null, null);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Adds many edges at once: edge i connects the vertices with ids
+     * src[i] and dst[i]. The pairs are sorted and deduplicated first, and
+     * self loops and pairs that are already connected are skipped. The
+     * adjacency lists are then each grown once and their hashed indexes
+     * built once at the end, instead of once per edge. New edges get
+     * their ids from this graph's edge id allocator.
+     *
+     * @param src the first endpoint id of each edge
+     * @param dst the second endpoint id of each edge
+     * @return the number of edges added
+     * @throws IllegalArgumentException if the arrays differ in length or
+     *     an id is not a vertex of this graph (nothing is added then)
+     */
+    public int addEdges(int[] src, int[] dst) {
+        if(src.length != dst.length) {
+            throw new IllegalArgumentException("src and dst must have the same length");
+        }
+
+        //pack each pair as (smaller id, larger id) so sorting groups repeats
+        long[] pairs = new long[src.length];
+        int count = 0;
+        for(int i = 0; i < src.length; i++) {
+            int u = Math.min(src[i], dst[i]);
+            int v = Math.max(src[i], dst[i]);
+            if(!isVertexId(u) || !isVertexId(v)) {
+                throw new IllegalArgumentException("no vertex with id " + (isVertexId(u) ? v : u));
+            }
+            if(u != v) {
+                pairs[count++] = ((long) u << 32) | v;
+            }
+        }
+        Arrays.sort(pairs, 0, count);
+
+        int unique = 0;
+        boolean empty = edgeSet.isEmpty();
+        for(int i = 0; i < count; i++) {
+            if(i > 0 && pairs[i] == pairs[i - 1]) {
+                continue;
+            }
+            if(!empty && findEdge((int) (pairs[i] >>> 32), (int) pairs[i]) != -1) {
+                continue;
+            }
+            pairs[unique++] = pairs[i];
+        }
+        if(unique == 0) {
+            return 0;
+        }
+
+        beforeWrite();
+        int[] grow = new int[adjList.length()];
+        for(int i = 0; i < unique; i++) {
+            grow[(int) (pairs[i] >>> 32)]++;
+            grow[(int) pairs[i]]++;
+        }
+        for(int id = 0; id < grow.length; id++) {
+            if(grow[id] > 0) {
+                ArrayList<Destination> list = ownedList(id);
+                list.ensureCapacity(list.size() + grow[id]);
+            }
+        }
+
+        for(int i = 0; i < unique; i++) {
+            GraphNode v1 = nodeTable.get((int) (pairs[i] >>> 32));
+            GraphNode v2 = nodeTable.get((int) pairs[i]);
+            GraphEdge e = new GraphEdge(edgeIds.allocate());
+            ensureEdgeCapacity(e.id);
+            endpointTable.set(e.id, new Pair<>(v1, v2));
+            edgeTable.set(e.id, e);
+            edgeSet.add(e);
+            edgePos[2 * e.id] = adjList.get(v1.id).size();
+            adjList.get(v1.id).add(new Destination(v2, e));
+            edgePos[2 * e.id + 1] = adjList.get(v2.id).size();
+            adjList.get(v2.id).add(new Destination(v1, e));
+            changed(ThreeTenGraphEvent.Type.EDGE_ADDED, null, e, endpointTable.get(e.id));
+        }
+
+        for(int id = 0; id < grow.length; id++) {
+            if(grow[id] > 0 && adjList.get(id).size() >= HASH_THRESHOLD) {
+                buildIndex(id);
+            }
+        }
+        return unique;
+    }
+
+    /**
+     * Removes edge from this graph in constant time.
      * Fails if edge is null, or is otherwise not an element of this graph.
      *
      * @param edge the edge to remove
@@ -380,37 +710,94 @@ class ThreeTenGraph implements Graph<GraphNode,GraphEdge>, UndirectedGraph<Graph
      */
     public boolean removeEdge(GraphEdge edge) {
 
-        if(edge == null) {
+        Pair<GraphNode> ends = getEndpoints(edge);
+        if(ends == null) {
             return false;
         }
 
-        int removed = 0;
+        beforeWrite();
+        removeDestination(ends.getFirst(), edgePos[2 * edge.id]);
+        removeDestination(ends.getSecond(), edgePos[2 * edge.id + 1]);
 
+        endpointTable.set(edge.id, null);
+        edgeTable.set(edge.id, null);
+        edgeSet.remove(edge);
+        edgeIds.release(edge.id);
+        changed(ThreeTenGraphEvent.Type.EDGE_REMOVED, null, edge, ends);
+        return true;
+    }
 
+    /**
+     * Appends an entry to a vertex's adjacency list, keeping its hashed
+     * index up to date (and building the index once the list gets long).
+     *
+     * @param vertex the vertex whose list is changed
+     * @param dest the neighbor and connecting edge to add
+     * @return the position of the new entry in the list
+     */
+    private int addDestination(GraphNode vertex, Destination dest) {
+        ArrayList<Destination> list = ownedList(vertex.id);
+        list.add(dest);
 
-        for(int i = 0; i < nodeList.size(); i++) {
+        if(nbrIndex[vertex.id] != null) {
+            nbrIndex[vertex.id].put(dest.node.id, dest.edge.id);
+        }
+        else if(list.size() >= HASH_THRESHOLD) {
+            buildIndex(vertex.id);
+        }
+        return list.size() - 1;
+    }
 
-            Iterator<Destination> itr = adjList[nodeList.get(i).id].iterator();
+    /**
+     * Tells whether a node id belongs to a vertex of this graph.
+     *
+     * @param id the node id
+     * @return true if there is a vertex with that id
+     */
+    private boolean isVertexId(int id) {
+        return id >= 0 && id < adjList.length() && adjList.get(id) != null;
+    }
 
-            if(!itr.hasNext()) {
-                continue;
-            }
-            do {
-                Destination current = itr.next();
-                if(current.edge == edge) {
-                    adjList[nodeList.get(i).id].remove(current);
-                    removed++;
-                }
-            } while(itr.hasNext());
+    /**
+     * (Re)builds the hashed neighbor index of a vertex from its list.
+     *
+     * @param id the node id
+     */
+    private void buildIndex(int id) {
+        ArrayList<Destination> list = adjList.get(id);
+        IntIntHashMap index = new IntIntHashMap(list.size() * 2);
+        for(Destination d : list) {
+            index.put(d.node.id, d.edge.id);
         }
-        if(removed == 2) {
-            return true;
+        nbrIndex[id] = index;
+    }
+
+    /**
+     * Removes the entry at a position of one endpoint's adjacency list by
+     * moving the list's last entry into its place, and records the moved
+     * entry's new position in edgePos.
+     *
+     * @param vertex the endpoint whose list is changed
+     * @param pos the position of the entry to take out
+     */
+    private void removeDestination(GraphNode vertex, int pos) {
+        ArrayList<Destination> list = ownedList(vertex.id);
+        Destination gone = list.get(pos);
+        Destination last = list.remove(list.size() - 1);
+        if(pos < list.size()) {
+            list.set(pos, last);
+            int id = last.edge.id;
+            //which end of its edge the moved entry belongs to (both, for a loop)
+            int side = (endpointTable.get(id).getFirst().id == vertex.id && edgePos[2 * id] == list.size()) ? 0 : 1;
+            edgePos[2 * id + side] = pos;
+        }
+        if(nbrIndex[vertex.id] != null) {
+            nbrIndex[vertex.id].remove(gone.node.id);
         }
-        return false;
     }
 
     /**
-     * Removes vertex from this graph.
+     * Removes vertex from this graph, in time proportional to its degree.
      * As a side effect, removes any edges e incident to vertex if the
      * removal of vertex would cause e to be incident to an illegal
      * number of vertices.  (Thus, for example, incident hyperedges are not removed, but
@@ -431,20 +818,600 @@ class ThreeTenGraph implements Graph<GraphNode,GraphEdge>, UndirectedGraph<Graph
             return false;
         }
 
-        if(adjList[vertex.id] == null) {
+        if(adjacencyOf(vertex) == null) {
             return false;
         }
 
-        for (int i = 0; i < adjList[vertex.id].size(); i++) {
-            Destination current = adjList[vertex.id].get(i);
-            Destination removeDest = new Destination(vertex, current.edge);
-            adjList[current.node.id].remove(removeDest);
-       }
+        beforeWrite();
+
+        //the vertex's own list is dropped whole; only the twins need removing
+        ArrayList<Destination> list = adjList.get(vertex.id);
+        for(int i = list.size() - 1; i >= 0; i--) {
+            Destination d = list.get(i);
+            int id = d.edge.id;
+            if(edgeTable.get(id) == null) {
+                continue; //the second entry of a self loop
+            }
+            if(d.node.id != vertex.id) {
+                int side = (endpointTable.get(id).getFirst().id == vertex.id) ? 1 : 0;
+                removeDestination(d.node, edgePos[2 * id + side]);
+            }
+            Pair<GraphNode> ends = endpointTable.get(id);
+            endpointTable.set(id, null);
+            edgeTable.set(id, null);
+            edgeSet.remove(d.edge);
+            edgeIds.release(id);
+            changed(ThreeTenGraphEvent.Type.EDGE_REMOVED, null, d.edge, ends);
+        }
 
-        adjList[vertex.id] = null;
+        adjList.set(vertex.id, null);
+        nodeTable.set(vertex.id, null);
+        nbrIndex[vertex.id] = null;
+        nodeList.remove(vertex);
+        nodeIds.release(vertex.id);
+        changed(ThreeTenGraphEvent.Type.VERTEX_REMOVED, vertex, null, null);
         return true;
     }
 
+    /**
+     * Returns the allocator for this graph's node ids.
+     *
+     * @return the node id allocator
+     */
+    public GraphIdAllocator getNodeIds() {
+        return nodeIds;
+    }
+
+    /**
+     * Returns the allocator for this graph's edge ids.
+     *
+     * @return the edge id allocator
+     */
+    public GraphIdAllocator getEdgeIds() {
+        return edgeIds;
+    }
+
+    /**
+     * Makes a read-only CSR copy of this graph for running algorithms on.
+     * The copy shares the node and edge objects with this graph but
+     * does not see later edits.
+     *
+     * @return the frozen copy
+     */
+    public ThreeTenCsrGraph freeze() {
+        return new ThreeTenCsrGraph(this);
+    }
+
+    /**
+     * Makes a read-only CSR copy of this graph with the vertices laid out
+     * in the given order for better locality. The copy's vertex indexes
+     * follow the order; its vertices are still this graph's GraphNodes.
+     *
+     * @param ordering how to order the vertices
+     * @return the frozen copy
+     */
+    public ThreeTenCsrGraph freeze(ThreeTenOrdering ordering) {
+        return ThreeTenCsrGraph.ordered(this, ordering);
+    }
+
+    /**
+     * Makes a read-only copy of this graph with varint compressed
+     * neighbor lists, for graphs too large for freeze. A locality
+     * ordering (RCM or BFS) keeps the gaps, and so the copy, small.
+     *
+     * @param ordering how to order the vertices
+     * @return the compressed copy
+     */
+    public ThreeTenCompressedGraph freezeCompressed(ThreeTenOrdering ordering) {
+        return new ThreeTenCompressedGraph(freeze(ordering));
+    }
+
+    /**
+     * Makes a read-only copy of this graph in whichever form takes less
+     * memory: a bit matrix (ThreeTenDenseGraph) when that takes no more
+     * room than CSR arrays, as for the half-full graphs SimGUI makes, and
+     * a CSR copy otherwise. The choice is by size only; a full coloring
+     * run is slower on the matrix (see ThreeTenBenchmark),
+     * so ThreeTenColor uses freeze instead.
+     *
+     * @param ordering how to order the vertices
+     * @return the frozen copy
+     */
+    public ThreeTenAbstractGraph freezeAdaptive(ThreeTenOrdering ordering) {
+        ThreeTenCsrGraph csr = freeze(ordering);
+        return ThreeTenDenseGraph.suits(csr) ? new ThreeTenDenseGraph(csr) : csr;
+    }
+
+    /**
+     * Returns the number of successful changes made to this graph so far.
+     *
+     * @return the version of this graph
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Starts telling a listener about every change to this graph. The
+     * listener is called on the thread making the change, right after it.
+     *
+     * @param listener the listener to add
+     */
+    public void addListener(ThreeTenGraphListener listener) {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+    }
+
+    /**
+     * Stops telling a listener about changes.
+     *
+     * @param listener the listener to remove
+     * @return true if it was listening
+     */
+    public boolean removeListener(ThreeTenGraphListener listener) {
+        for(int i = 0; i < listeners.length; i++) {
+            if(listeners[i] == listener) {
+                ThreeTenGraphListener[] fewer = Arrays.copyOf(listeners, listeners.length - 1);
+                System.arraycopy(listeners, i + 1, fewer, i, fewer.length - i);
+                listeners = fewer;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Keeps a journal of the most recent changes, for consumers that
+     * catch up now and then instead of listening (see changesSince).
+     * The journal starts out empty; 0 turns it off (the default).
+     *
+     * @param capacity how many changes to keep
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    public void setJournalCapacity(int capacity) {
+        if(capacity < 0) {
+            throw new IllegalArgumentException("journal capacity must not be negative");
+        }
+        journal = (capacity == 0) ? null : new ThreeTenGraphEvent[capacity];
+        journalHead = 0;
+        journalSize = 0;
+        journalFloor = version;
+    }
+
+    /**
+     * Returns the changes made after a version, oldest first, from the
+     * journal. If the journal is off or no longer reaches back that far,
+     * the caller has to read the whole graph again instead.
+     *
+     * @param since a version returned by getVersion earlier
+     * @return the changes, or null if they are not all known
+     */
+    public List<ThreeTenGraphEvent> changesSince(long since) {
+        if(since == version) {
+            return new ArrayList<>();
+        }
+        if(journal == null || since < journalFloor || since > version) {
+            return null;
+        }
+        ArrayList<ThreeTenGraphEvent> changes = new ArrayList<>();
+        for(int i = 0; i < journalSize; i++) {
+            ThreeTenGraphEvent event = journal[(journalHead + i) % journal.length];
+            if(event.getVersion() > since) {
+                changes.add(event);
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Takes an immutable snapshot of the current version of this graph in
+     * constant time. The snapshot shares this graph's tables and adjacency
+     * lists. After it, the first edit copies each table's page directory
+     * (one pointer per PagedTable.PAGE_SIZE slots), and an edit copies a
+     * table page or an adjacency list only the first time it changes it,
+     * so the snapshot never changes and an edit costs the pages and lists
+     * it touches rather than the whole graph. Readers on other threads
+     * can use it without any locking while this graph keeps being edited.
+     *
+     * @return a read-only view of this version of the graph
+     */
+    public Snapshot snapshot() {
+        shared = true;
+        return new Snapshot(this);
+    }
+
+    /**
+     * A growable table split into fixed-size pages that a snapshot can
+     * share. share() hands out a read-only view; after that the table
+     * copies its page directory on the next write and each page the first
+     * time it is written (path copying), so the view never changes.
+     *
+     * @param <T> the element type
+     */
+    static class PagedTable<T> {
+        /**
+         * log2 of the page size.
+         */
+        private static final int PAGE_BITS = 8;
+        /**
+         * The number of slots in a page.
+         */
+        static final int PAGE_SIZE = 1 << PAGE_BITS;
+        /**
+         * The pages, null where no slot of the page was ever set.
+         */
+        private Object[][] pages;
+        /**
+         * The epoch each page was created or copied in; only pages of the
+         * current epoch may be written in place. Null in a read-only view.
+         */
+        private int[] pageEpoch;
+        /**
+         * Bumped each time a shared directory is copied.
+         */
+        private int epoch = 0;
+        /**
+         * True while a view holds the current directory and pages.
+         */
+        private boolean shared = false;
+
+        /**
+         * Constructs an empty table.
+         *
+         * @param capacity the number of slots to start with
+         */
+        PagedTable(int capacity) {
+            pages = new Object[(capacity + PAGE_SIZE - 1) >>> PAGE_BITS][];
+            pageEpoch = new int[pages.length];
+        }
+
+        /**
+         * Constructs a read-only view of a directory.
+         *
+         * @param pages the shared directory
+         */
+        private PagedTable(Object[][] pages) {
+            this.pages = pages;
+        }
+
+        /**
+         * Returns the number of slots.
+         *
+         * @return the capacity, a multiple of PAGE_SIZE
+         */
+        int length() {
+            return pages.length << PAGE_BITS;
+        }
+
+        /**
+         * Returns the value in a slot.
+         *
+         * @param i the slot, 0 to length()-1
+         * @return the value, or null if the slot is empty
+         */
+        @SuppressWarnings("unchecked")
+        T get(int i) {
+            Object[] page = pages[i >>> PAGE_BITS];
+            return (page == null) ? null : (T) page[i & (PAGE_SIZE - 1)];
+        }
+
+        /**
+         * Stores a value in a slot, first copying the slot's page if a
+         * view may still hold it.
+         *
+         * @param i the slot, 0 to length()-1
+         * @param value the value (null empties the slot)
+         */
+        void set(int i, T value) {
+            unshare();
+            int p = i >>> PAGE_BITS;
+            if(pages[p] == null) {
+                if(value == null) {
+                    return;
+                }
+                pages[p] = new Object[PAGE_SIZE];
+                pageEpoch[p] = epoch;
+            }
+            else if(pageEpoch[p] != epoch) {
+                pages[p] = pages[p].clone();
+                pageEpoch[p] = epoch;
+            }
+            pages[p][i & (PAGE_SIZE - 1)] = value;
+        }
+
+        /**
+         * Grows the table (by doubling) until it has at least a given
+         * number of slots. Only the directory is copied.
+         *
+         * @param length the number of slots needed
+         */
+        void ensureLength(int length) {
+            if(length <= length()) {
+                return;
+            }
+            unshare();
+            int count = Math.max((length + PAGE_SIZE - 1) >>> PAGE_BITS, pages.length * 2);
+            pages = Arrays.copyOf(pages, count);
+            pageEpoch = Arrays.copyOf(pageEpoch, count);
+        }
+
+        /**
+         * Returns a read-only view of the table as it is now.
+         *
+         * @return the view
+         */
+        PagedTable<T> share() {
+            shared = true;
+            return new PagedTable<>(pages);
+        }
+
+        /**
+         * Gives this table its own directory if a view holds the current
+         * one, and starts a new epoch so every page is copied before it
+         * is written.
+         */
+        private void unshare() {
+            if(!shared) {
+                return;
+            }
+            pages = pages.clone();
+            epoch++;
+            shared = false;
+        }
+    }
+
+    /**
+     * An immutable version of a ThreeTenGraph, see snapshot().
+     * Vertex and edge handles are node and edge ids, as in the graph.
+     */
+    static class Snapshot extends ThreeTenAbstractGraph {
+        /**
+         * The graph version this snapshot shows.
+         */
+        private final long version;
+        /**
+         * The shared adjacency lists, by node id.
+         */
+        private final PagedTable<ArrayList<Destination>> adjList;
+        /**
+         * The shared vertex table, by node id.
+         */
+        private final PagedTable<GraphNode> nodeTable;
+        /**
+         * The shared edge table, by edge id.
+         */
+        private final PagedTable<GraphEdge> edgeTable;
+        /**
+         * The shared endpoint table, by edge id.
+         */
+        private final PagedTable<Pair<GraphNode>> endpointTable;
+        /**
+         * The number of vertices at this version.
+         */
+        private final int vertexCount;
+        /**
+         * The number of edges at this version.
+         */
+        private final int edgeCount;
+        /**
+         * The vertices, collected on first use.
+         */
+        private Collection<GraphNode> vertices = null;
+        /**
+         * The edges, collected on first use.
+         */
+        private Collection<GraphEdge> edges = null;
+
+        /**
+         * Captures the current tables of a graph.
+         *
+         * @param graph the graph to take a snapshot of
+         */
+        private Snapshot(ThreeTenGraph graph) {
+            version = graph.version;
+            adjList = graph.adjList.share();
+            nodeTable = graph.nodeTable.share();
+            edgeTable = graph.edgeTable.share();
+            endpointTable = graph.endpointTable.share();
+            vertexCount = graph.nodeList.size();
+            edgeCount = graph.edgeSet.size();
+        }
+
+        /**
+         * Returns the version of the graph this snapshot shows.
+         *
+         * @return the graph version
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         *  {@inheritDoc}
+         */
+        public Collection<GraphNode> getVertices() {
+            if(vertices == null) {
+                ArrayList<GraphNode> list = new ArrayList<>(vertexCount);
+                for(int v = 0; v < nodeTable.length(); v++) {
+                    if(nodeTable.get(v) != null) list.add(nodeTable.get(v));
+                }
+                vertices = Collections.unmodifiableList(list);
+            }
+            return vertices;
+        }
+
+        /**
+         *  {@inheritDoc}
+         */
+        public Collection<GraphEdge> getEdges() {
+            if(edges == null) {
+                ArrayList<GraphEdge> list = new ArrayList<>(edgeCount);
+                for(int e = 0; e < edgeTable.length(); e++) {
+                    if(edgeTable.get(e) != null) list.add(edgeTable.get(e));
+                }
+                edges = Collections.unmodifiableList(list);
+            }
+            return edges;
+        }
+
+        /**
+         *  {@inheritDoc}
+         */
+        public int getVertexCount() { return vertexCount; }
+
+        /**
+         *  {@inheritDoc}
+         */
+        public int getEdgeCount() { return edgeCount; }
+
+        /**
+         *  {@inheritDoc}
+         */
+        public GraphNode getVertex(int v) {
+            return (v >= 0 && v < nodeTable.length()) ? nodeTable.get(v) : null;
+        }
+
+        /**
+         *  {@inheritDoc}
+         */
+        public GraphEdge getEdge(int e) {
+            return (e >= 0 && e < edgeTable.length()) ? edgeTable.get(e) : null;
+        }
+
+        /**
+         *  Handles are ids, which can have gaps.
+         *
+         *  @return false
+         */
+        @Override
+        public boolean hasDenseIndexes() {
+            return false;
+        }
+
+        /**
+         *  {@inheritDoc}
+         */
+        public int indexOf(GraphNode vertex) {
+            return (vertex != null && getVertex(vertex.id) != null) ? vertex.id : -1;
+        }
+
+        /**
+         *  {@inheritDoc}
+         */
+        public int indexOf(GraphEdge edge) {
+            return (edge != null && getEdge(edge.id) != null) ? edge.id : -1;
+        }
+
+        /**
+         *  {@inheritDoc}
+         */
+        public int degree(int v) { return adjList.get(v).size(); }
+
+        /**
+         *  {@inheritDoc}
+         */
+        public int neighborAt(int v, int i) { return adjList.get(v).get(i).node.id; }
+
+        /**
+         *  {@inheritDoc}
+         */
+        public int edgeAt(int v, int i) { return adjList.get(v).get(i).edge.id; }
+
+        /**
+         *  {@inheritDoc}
+         */
+        public int firstEnd(int e) { return endpointTable.get(e).getFirst().id; }
+
+        /**
+         *  {@inheritDoc}
+         */
+        public int secondEnd(int e) { return endpointTable.get(e).getSecond().id; }
+
+        /**
+         *  {@inheritDoc}
+         */
+        @Override
+        public Pair<GraphNode> getEndpoints(GraphEdge edge) {
+            return (indexOf(edge) == -1) ? null : endpointTable.get(edge.id);
+        }
+    }
+
+    //********************************************************************************
+    //   primitive neighbor access (ThreeTenAdjacency), handles are node/edge ids
+    //********************************************************************************
+
+    /**
+     * Returns the vertex with the given id.
+     *
+     * @param id the node id
+     * @return the vertex, or null if there is no vertex with that id
+     */
+    public GraphNode getVertex(int id) {
+        return (id >= 0 && id < nodeTable.length()) ? nodeTable.get(id) : null;
+    }
+
+    /**
+     * Returns the edge with the given id.
+     *
+     * @param id the edge id
+     * @return the edge, or null if there is no edge with that id
+     */
+    public GraphEdge getEdge(int id) {
+        return (id >= 0 && id < edgeTable.length()) ? edgeTable.get(id) : null;
+    }
+
+    /**
+     * Returns the id of a vertex if it is in this graph.
+     *
+     * @param vertex the vertex to look up
+     * @return the node id, or -1 if the vertex is not in this graph
+     */
+    public int indexOf(GraphNode vertex) {
+        return containsVertex(vertex) ? vertex.id : -1;
+    }
+
+    /**
+     * Returns the id of an edge if it is in this graph.
+     *
+     * @param edge the edge to look up
+     * @return the edge id, or -1 if the edge is not in this graph
+     */
+    public int indexOf(GraphEdge edge) {
+        return containsEdge(edge) ? edge.id : -1;
+    }
+
+    /**
+     * Returns the degree of the vertex with the given id.
+     *
+     * @param id the node id (must be in the graph)
+     * @return the number of neighbor entries of the vertex
+     */
+    public int degree(int id) {
+        return adjList.get(id).size();
+    }
+
+    /**
+     * Returns the id of the i-th neighbor of a vertex.
+     *
+     * @param id the node id (must be in the graph)
+     * @param i the position in the neighbor list, 0 to degree(id)-1
+     * @return the node id of the neighbor
+     */
+    public int neighborAt(int id, int i) {
+        return adjList.get(id).get(i).node.id;
+    }
+
+    /**
+     * Returns the id of the edge to the i-th neighbor of a vertex.
+     *
+     * @param id the node id (must be in the graph)
+     * @param i the position in the neighbor list, 0 to degree(id)-1
+     * @return the edge id
+     */
+    public int edgeAt(int id, int i) {
+        return adjList.get(id).get(i).edge.id;
+    }
+
     //********************************************************************************
     //   testing code goes here... edit this as much as you want!
     //********************************************************************************
@@ -507,6 +1474,157 @@ class ThreeTenGraph implements Graph<GraphNode,GraphEdge>, UndirectedGraph<Graph
             System.out.println("Yay 2");
         }
 
+        GraphNode far = new GraphNode(1000000);
+        graph.addVertex(far);
+        graph.addEdge(new GraphEdge(6), far, nodes[3]);
+        boolean notEnd = false;
+        try {
+            graph.getOpposite(nodes[0], new GraphEdge(6));
+        }
+        catch(IllegalArgumentException e) {
+            notEnd = true;
+        }
+        if(graph.getVertexCount() == 11 && graph.getOpposite(nodes[3], new GraphEdge(6)) == far
+            && notEnd && !graph.containsVertex(new GraphNode(999999))) {
+            System.out.println("Yay 3");
+        }
+
+        int[] sum = {0};
+        graph.forEachNeighbor(0, id -> sum[0] += id);
+        if(graph.degree(9) == 2 && graph.neighborAt(2, 1) == 3 && graph.getEdge(graph.edgeAt(2, 0)).id == 1 && sum[0] == 10) {
+            System.out.println("Yay 4");
+        }
+
+        //a hub big enough to get a hashed neighbor index
+        GraphNode hub = new GraphNode(500);
+        graph.addVertex(hub);
+        for(int i = 0; i < 40; i++) {
+            GraphNode leaf = new GraphNode(600 + i);
+            graph.addVertex(leaf);
+            graph.addEdge(new GraphEdge(100 + i), hub, leaf);
+        }
+        graph.removeEdge(new GraphEdge(110));
+        graph.removeVertex(new GraphNode(620));
+        if(graph.findEdge(hub, new GraphNode(639)).id == 139 && graph.findEdge(new GraphNode(610), hub) == null
+            && graph.findEdge(hub, new GraphNode(620)) == null && graph.degree(hub) == 38
+            && !graph.addEdge(new GraphEdge(200), new GraphNode(605), hub)) {
+            System.out.println("Yay 5");
+        }
+
+        Snapshot snap = graph.snapshot();
+        long before = graph.getVersion();
+        graph.removeEdge(new GraphEdge(0));
+        graph.addEdge(new GraphEdge(300), nodes[4], nodes[5]);
+        graph.removeVertex(hub);
+        //a second snapshot shares the pages the first one made the graph copy
+        Snapshot later = graph.snapshot();
+        graph.addEdge(new GraphEdge(301), nodes[0], nodes[1]);
+        boolean layered = !later.isNeighbor(nodes[0], nodes[1]) && !later.containsVertex(hub) && later.isNeighbor(nodes[4], nodes[5])
+            && snap.getVertexCount() == later.getVertexCount() + 1 && graph.isNeighbor(nodes[0], nodes[1]);
+        graph.removeEdge(new GraphEdge(301));
+        if(layered && snap.isNeighbor(nodes[0], nodes[1]) && !snap.isNeighbor(nodes[4], nodes[5]) && snap.degree(hub) == 38
+            && snap.getVersion() == before && graph.getVersion() > before && snap.getEdgeCount() == 45
+            && !graph.isNeighbor(nodes[0], nodes[1]) && graph.isNeighbor(nodes[4], nodes[5]) && !graph.containsVertex(hub)) {
+            System.out.println("Yay 6");
+        }
+
+        ThreeTenGraph bulk = new ThreeTenGraph();
+        ArrayList<GraphNode> many = new ArrayList<>();
+        for(int i = 0; i < 30; i++) {
+            many.add(new GraphNode(i));
+        }
+        bulk.addVertices(many);
+        bulk.addEdge(new GraphEdge(5), many.get(0), many.get(1));
+        int[] src = new int[60];
+        int[] dst = new int[60];
+        for(int i = 0; i < 30; i++) {
+            src[2 * i] = 0; dst[2 * i] = i;
+            src[2 * i + 1] = i; dst[2 * i + 1] = (i + 1) % 30;
+        }
+        int added = bulk.addEdges(src, dst);
+        boolean rejected = false;
+        try {
+            bulk.addEdges(new int[] {1, 2}, new int[] {3, 99});
+        }
+        catch(IllegalArgumentException e) {
+            rejected = true;
+        }
+        if(bulk.addVertices(many) == 0 && added == 56 && bulk.getEdgeCount() == 57 && bulk.degree(many.get(0)) == 29
+            && bulk.findEdge(many.get(17), many.get(0)) != null && bulk.findEdge(many.get(0), many.get(1)).id == 5
+            && bulk.findEdge(many.get(29), many.get(0)) != null && rejected && !bulk.isNeighbor(many.get(1), many.get(3))) {
+            System.out.println("Yay 7");
+        }
+
+        //random edits checked against a plain set of id pairs
+        java.util.Random rand = new java.util.Random(0);
+        ThreeTenGraph churn = new ThreeTenGraph();
+        java.util.HashSet<Long> pairs = new java.util.HashSet<>();
+        boolean[] present = new boolean[40];
+        int nextEdge = 0;
+        boolean same = true;
+        for(int step = 0; step < 20000; step++) {
+            int u = rand.nextInt(40);
+            int v = rand.nextInt(40);
+            int op = rand.nextInt(10);
+            if(op == 0) {
+                same &= churn.removeVertex(new GraphNode(u)) == present[u];
+                present[u] = false;
+                pairs.removeIf(p -> (int) (p >>> 32) == u || (int) (long) p == u);
+            }
+            else if(op < 4) {
+                GraphEdge e = churn.findEdge(new GraphNode(u), new GraphNode(v));
+                same &= (e != null) == pairs.contains(((long) Math.min(u, v) << 32) | Math.max(u, v));
+                if(e != null) {
+                    same &= churn.removeEdge(e);
+                    pairs.remove(((long) Math.min(u, v) << 32) | Math.max(u, v));
+                }
+            }
+            else {
+                if(!present[u]) { churn.addVertex(new GraphNode(u)); present[u] = true; }
+                if(!present[v]) { churn.addVertex(new GraphNode(v)); present[v] = true; }
+                if(u != v && churn.addEdge(new GraphEdge(nextEdge), new GraphNode(u), new GraphNode(v))) {
+                    nextEdge++;
+                    pairs.add(((long) Math.min(u, v) << 32) | Math.max(u, v));
+                }
+            }
+        }
+        int vertices = 0;
+        int degrees = 0;
+        for(int i = 0; i < 40; i++) {
+            if(present[i]) {
+                vertices++;
+                degrees += churn.degree(new GraphNode(i));
+                for(GraphNode w : churn.getNeighbors(new GraphNode(i))) {
+                    same &= pairs.contains(((long) Math.min(i, w.id) << 32) | Math.max(i, w.id));
+                }
+            }
+        }
+        if(same && churn.getVertexCount() == vertices && churn.getEdgeCount() == pairs.size() && degrees == 2 * pairs.size()) {
+            System.out.println("Yay 8");
+        }
+
+        //listeners and the journal see every change, in order
+        ThreeTenGraph watched = new ThreeTenGraph();
+        ArrayList<ThreeTenGraphEvent> heard = new ArrayList<>();
+        ThreeTenGraphListener ear = heard::add;
+        watched.addListener(ear);
+        watched.setJournalCapacity(6);
+        watched.addVertices(Arrays.asList(new GraphNode(0), new GraphNode(1), new GraphNode(2)));
+        long mark = watched.getVersion();
+        watched.addEdges(new int[] {0, 1}, new int[] {1, 2});
+        watched.removeVertex(new GraphNode(1));
+        List<ThreeTenGraphEvent> recent = watched.changesSince(mark);
+        watched.removeListener(ear);
+        watched.addVertex(new GraphNode(5));
+        if(heard.size() == 8 && heard.get(0).getType() == ThreeTenGraphEvent.Type.VERTEX_ADDED
+            && heard.get(7).getType() == ThreeTenGraphEvent.Type.VERTEX_REMOVED && heard.get(7).getVertex().id == 1
+            && heard.get(5).getEndpoints() != null && heard.get(7).getVersion() == watched.getVersion() - 1
+            && recent != null && recent.size() == 5 && recent.get(0).getType() == ThreeTenGraphEvent.Type.EDGE_ADDED
+            && watched.changesSince(0) == null && watched.changesSince(mark + 1).size() == 4
+            && watched.changesSince(watched.getVersion()).isEmpty()) {
+            System.out.println("Yay 9");
+        }
+
     }
 
     /**
@@ -753,15 +1871,20 @@ class ThreeTenGraph implements Graph<GraphNode,GraphEdge>, UndirectedGraph<Graph
      * @param vertex the vertex to be queried
      * @param edge the edge to be queried
      * @return the vertex at the other end of edge from vertex
+     * @throws IllegalArgumentException if the vertex is not an endpoint of the edge
      */
     public GraphNode getOpposite(GraphNode vertex, GraphEdge edge) {
         Pair<GraphNode> p = getEndpoints(edge);
+        if(p == null) {
+            return null;
+        }
         if(p.getFirst().equals(vertex)) {
             return p.getSecond();
         }
-        else {
+        if(p.getSecond().equals(vertex)) {
             return p.getFirst();
         }
+        throw new IllegalArgumentException(vertex + " is not incident to " + edge);
     }
 
     /**
@@ -923,6 +2046,26 @@ class ThreeTenGraph implements Graph<GraphNode,GraphEdge>, UndirectedGraph<Graph
         };
     }
 
+    /**
+     * Returns a {@code Factory} that creates graphs sharing the given id
+     * allocators, which should also be passed to the node and edge factories.
+     *
+     * @param <graphNodeT> the vertex type for the graph factory
+     * @param <graphEdgeT> the edge type for the graph factory
+     * @param nodeIds the allocator for node ids
+     * @param edgeIds the allocator for edge ids
+     * @return the instance of the graph type
+     */
+    public static <graphNodeT,graphEdgeT> Factory<UndirectedGraph<graphNodeT,graphEdgeT>> getFactory(
+            GraphIdAllocator nodeIds, GraphIdAllocator edgeIds) {
+        return new Factory<UndirectedGraph<graphNodeT,graphEdgeT>> () {
+            @SuppressWarnings("unchecked")
+            public UndirectedGraph<graphNodeT,graphEdgeT> create() {
+                return (UndirectedGraph<graphNodeT,graphEdgeT>) new ThreeTenGraph(nodeIds, edgeIds);
+            }
+        };
+    }
+
     /**
      * Returns the edge type of edge in this graph.
      *
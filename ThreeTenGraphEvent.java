@@ -0,0 +1,146 @@
+import edu.uci.ics.jung.graph.util.Pair;
+
+/**
+ *  One change to a ThreeTenGraph: a vertex or an edge that was added or
+ *  removed, and the graph version the change made. Versions never go
+ *  down, so a consumer that remembers the last version it saw can ask
+ *  the graph for just the changes after it (see ThreeTenGraph.changesSince).
+ */
+class ThreeTenGraphEvent {
+    /**
+     *  The kinds of change.
+     */
+    enum Type {
+        /**
+         *  A vertex was added.
+         */
+        VERTEX_ADDED,
+
+        /**
+         *  A vertex was removed (after its edges).
+         */
+        VERTEX_REMOVED,
+
+        /**
+         *  An edge was added.
+         */
+        EDGE_ADDED,
+
+        /**
+         *  An edge was removed.
+         */
+        EDGE_REMOVED
+    }
+
+    /**
+     *  What happened.
+     */
+    private final Type type;
+
+    /**
+     *  The graph version after the change.
+     */
+    private final long version;
+
+    /**
+     *  The vertex added or removed, null for edge events.
+     */
+    private final GraphNode vertex;
+
+    /**
+     *  The edge added or removed, null for vertex events.
+     */
+    private final GraphEdge edge;
+
+    /**
+     *  The endpoints of the edge, null for vertex events.
+     */
+    private final Pair<GraphNode> endpoints;
+
+    /**
+     *  Makes a vertex event.
+     *
+     *  @param type VERTEX_ADDED or VERTEX_REMOVED
+     *  @param version the graph version after the change
+     *  @param vertex the vertex
+     */
+    public ThreeTenGraphEvent(Type type, long version, GraphNode vertex) {
+        this.type = type;
+        this.version = version;
+        this.vertex = vertex;
+        this.edge = null;
+        this.endpoints = null;
+    }
+
+    /**
+     *  Makes an edge event.
+     *
+     *  @param type EDGE_ADDED or EDGE_REMOVED
+     *  @param version the graph version after the change
+     *  @param edge the edge
+     *  @param endpoints its endpoints
+     */
+    public ThreeTenGraphEvent(Type type, long version, GraphEdge edge, Pair<GraphNode> endpoints) {
+        this.type = type;
+        this.version = version;
+        this.vertex = null;
+        this.edge = edge;
+        this.endpoints = endpoints;
+    }
+
+    /**
+     *  Returns what happened.
+     *
+     *  @return the type of change
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     *  Returns the graph version after the change.
+     *
+     *  @return the version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     *  Returns the vertex added or removed.
+     *
+     *  @return the vertex, or null for an edge event
+     */
+    public GraphNode getVertex() {
+        return vertex;
+    }
+
+    /**
+     *  Returns the edge added or removed.
+     *
+     *  @return the edge, or null for a vertex event
+     */
+    public GraphEdge getEdge() {
+        return edge;
+    }
+
+    /**
+     *  Returns the endpoints the edge had.
+     *
+     *  @return the endpoints, or null for a vertex event
+     */
+    public Pair<GraphNode> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        if(vertex != null) {
+            return type + " " + vertex.id + " at version " + version;
+        }
+        return type + " " + edge.id + " (" + endpoints.getFirst().id + "-" + endpoints.getSecond().id + ") at version " + version;
+    }
+}
\ No newline at end of file
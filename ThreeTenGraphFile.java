@@ -0,0 +1,440 @@
+import edu.uci.ics.jung.graph.Graph;
+
+import java.awt.Color;
+
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import java.util.Arrays;
+
+/**
+ *  Reads and writes the binary graph file format, so a large instance
+ *  can be saved once and then mapped back in (see ThreeTenMappedGraph)
+ *  instead of being generated again on every run.
+ *
+ *  <p>All values are little-endian, and every section starts on an
+ *  8 byte boundary:
+ *  <pre>
+ *  header   int magic, int version, int flags, int n, int m, int reserved
+ *  offsets  long[n+1]   start of each vertex's run, in entries
+ *  entries  int[2*2m]   (neighbor, edge) pairs, each run sorted by neighbor
+ *  ends     int[2m]     the two endpoints of each edge
+ *  colors   int[n]      node colors as ARGB   (only if flags has COLORS)
+ *  costs    int[n]      node costs            (only if flags has COSTS)
+ *  nodeIds  int[n]      GraphNode id of each vertex  (only if flags has IDS)
+ *  edgeIds  int[m]      GraphEdge id of each edge    (only if flags has IDS)
+ *  </pre>
+ *  Inside the file vertices and edges are numbered 0..n-1 and 0..m-1.
+ *  Vertex v is read back as the GraphNode with id nodeIds[v] and edge e
+ *  as the GraphEdge with id edgeIds[e], so a round trip keeps every id.
+ *  The writer leaves the id sections out when every id already equals
+ *  its number; then vertex v has id v and edge e id e. Version 1 files
+ *  have no id sections and are still read.
+ */
+class ThreeTenGraphFile {
+    /**
+     *  The first four bytes of every graph file ("TTCG").
+     */
+    static final int MAGIC = 0x54544347;
+
+    /**
+     *  The format version written by this class.
+     */
+    static final int VERSION = 2;
+
+    /**
+     *  Flag: the file has a colors section.
+     */
+    static final int COLORS = 1;
+
+    /**
+     *  Flag: the file has a costs section.
+     */
+    static final int COSTS = 2;
+
+    /**
+     *  Flag: the file has node and edge id sections (version 2 and up).
+     */
+    static final int IDS = 4;
+
+    /**
+     *  The size of the header in bytes.
+     */
+    private static final int HEADER_BYTES = 24;
+
+    /**
+     *  Where each section of a file starts, worked out from its header.
+     */
+    static class Layout {
+        /**
+         *  The flags from the header.
+         */
+        final int flags;
+
+        /**
+         *  The number of vertices.
+         */
+        final int vertexCount;
+
+        /**
+         *  The number of edges.
+         */
+        final int edgeCount;
+
+        /**
+         *  Byte position of the offsets section.
+         */
+        final long offsetsAt;
+
+        /**
+         *  Byte position of the entries section.
+         */
+        final long entriesAt;
+
+        /**
+         *  Byte position of the ends section.
+         */
+        final long endsAt;
+
+        /**
+         *  Byte position of the colors section, or -1 if there is none.
+         */
+        final long colorsAt;
+
+        /**
+         *  Byte position of the costs section, or -1 if there is none.
+         */
+        final long costsAt;
+
+        /**
+         *  Byte position of the node ids section, or -1 if there is none.
+         */
+        final long nodeIdsAt;
+
+        /**
+         *  Byte position of the edge ids section, or -1 if there is none.
+         */
+        final long edgeIdsAt;
+
+        /**
+         *  The total length of the file in bytes.
+         */
+        final long length;
+
+        /**
+         *  Lays out a file with the given header values.
+         *
+         *  @param flags the flags
+         *  @param vertexCount the number of vertices
+         *  @param edgeCount the number of edges
+         */
+        Layout(int flags, int vertexCount, int edgeCount) {
+            this.flags = flags;
+            this.vertexCount = vertexCount;
+            this.edgeCount = edgeCount;
+
+            long attributeBytes = align(4L * vertexCount);
+            offsetsAt = HEADER_BYTES;
+            entriesAt = offsetsAt + 8L * (vertexCount + 1);
+            endsAt = entriesAt + 16L * edgeCount;
+            long at = endsAt + 8L * edgeCount;
+            colorsAt = ((flags & COLORS) != 0) ? at : -1;
+            at += ((flags & COLORS) != 0) ? attributeBytes : 0;
+            costsAt = ((flags & COSTS) != 0) ? at : -1;
+            at += ((flags & COSTS) != 0) ? attributeBytes : 0;
+            nodeIdsAt = ((flags & IDS) != 0) ? at : -1;
+            at += ((flags & IDS) != 0) ? attributeBytes : 0;
+            edgeIdsAt = ((flags & IDS) != 0) ? at : -1;
+            at += ((flags & IDS) != 0) ? align(4L * edgeCount) : 0;
+            length = at;
+        }
+
+        /**
+         *  Rounds a length up to a multiple of 8.
+         *
+         *  @param bytes the length
+         *  @return the padded length
+         */
+        private static long align(long bytes) {
+            return (bytes + 7) & ~7L;
+        }
+    }
+
+    /**
+     *  Reads and checks the header of an open graph file.
+     *
+     *  @param channel the open file
+     *  @return the layout of the file
+     *  @throws IOException if the file is not a graph file this class can read
+     */
+    static Layout readLayout(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        while(header.hasRemaining() && channel.read(header, header.position()) != -1) { }
+        header.flip();
+        if(header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+            throw new IOException("not a graph file");
+        }
+        int version = header.getInt();
+        if(version < 1 || version > VERSION) {
+            throw new IOException("unsupported graph file version " + version);
+        }
+        int flags = header.getInt();
+        int n = header.getInt();
+        int m = header.getInt();
+        int known = (version == 1) ? (COLORS | COSTS) : (COLORS | COSTS | IDS);
+        if(n < 0 || m < 0 || (flags & ~known) != 0) {
+            throw new IOException("corrupt graph file header");
+        }
+        Layout layout = new Layout(flags, n, m);
+        if(channel.size() != layout.length) {
+            throw new IOException("truncated or corrupt graph file");
+        }
+        return layout;
+    }
+
+    /**
+     *  Writes a graph with its node colors and costs.
+     *
+     *  @param graph the graph to write
+     *  @param file the file to write (replaced if it exists)
+     *  @throws IOException if the file cannot be written
+     */
+    public static void write(Graph<GraphNode,GraphEdge> graph, Path file) throws IOException {
+        write(graph, file, COLORS | COSTS);
+    }
+
+    /**
+     *  Writes a graph in one streaming pass. Vertices and edges are
+     *  numbered in the order the graph lists them, and their ids are
+     *  saved too unless every id equals its number.
+     *
+     *  @param graph the graph to write
+     *  @param file the file to write (replaced if it exists)
+     *  @param flags which optional sections to write (COLORS, COSTS);
+     *      IDS is added when it is needed
+     *  @throws IOException if the file cannot be written
+     */
+    public static void write(Graph<GraphNode,GraphEdge> graph, Path file, int flags) throws IOException {
+        ThreeTenAbstractGraph csr = (graph instanceof ThreeTenCsrGraph || graph instanceof ThreeTenMappedGraph)
+            ? (ThreeTenAbstractGraph) graph : new ThreeTenCsrGraph(graph);
+        int n = csr.getVertexCount();
+        int m = csr.getEdgeCount();
+
+        flags &= ~IDS;
+        for(int v = 0; v < n && (flags & IDS) == 0; v++) {
+            if(csr.getVertex(v).id != v) flags |= IDS;
+        }
+        for(int e = 0; e < m && (flags & IDS) == 0; e++) {
+            if(csr.getEdge(e).id != e) flags |= IDS;
+        }
+
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            buf.putInt(MAGIC).putInt(VERSION).putInt(flags).putInt(n).putInt(m).putInt(0);
+
+            long offset = 0;
+            for(int v = 0; v <= n; v++) {
+                buf = drain(channel, buf, 8);
+                buf.putLong(offset);
+                if(v < n) offset += csr.degree(v);
+            }
+
+            long[] run = new long[0];
+            for(int v = 0; v < n; v++) {
+                int d = csr.degree(v);
+                if(run.length < d) run = new long[Math.max(d, 2 * run.length)];
+                for(int i = 0; i < d; i++) {
+                    run[i] = ((long) csr.neighborAt(v, i) << 32) | csr.edgeAt(v, i);
+                }
+                Arrays.sort(run, 0, d);
+                for(int i = 0; i < d; i++) {
+                    buf = drain(channel, buf, 8);
+                    buf.putInt((int) (run[i] >>> 32)).putInt((int) run[i]);
+                }
+            }
+
+            for(int e = 0; e < m; e++) {
+                buf = drain(channel, buf, 8);
+                buf.putInt(csr.firstEnd(e)).putInt(csr.secondEnd(e));
+            }
+
+            if((flags & COLORS) != 0) {
+                for(int v = 0; v < n; v++) {
+                    buf = drain(channel, buf, 4);
+                    buf.putInt(csr.getVertex(v).getColor().getRGB());
+                }
+                buf = pad(channel, buf, n);
+            }
+            if((flags & COSTS) != 0) {
+                for(int v = 0; v < n; v++) {
+                    buf = drain(channel, buf, 4);
+                    buf.putInt(csr.getVertex(v).getCost());
+                }
+                buf = pad(channel, buf, n);
+            }
+            if((flags & IDS) != 0) {
+                for(int v = 0; v < n; v++) {
+                    buf = drain(channel, buf, 4);
+                    buf.putInt(csr.getVertex(v).id);
+                }
+                buf = pad(channel, buf, n);
+                for(int e = 0; e < m; e++) {
+                    buf = drain(channel, buf, 4);
+                    buf.putInt(csr.getEdge(e).id);
+                }
+                buf = pad(channel, buf, m);
+            }
+            drain(channel, buf, buf.capacity());
+        }
+    }
+
+    /**
+     *  Pads an int section out to the next 8 byte boundary.
+     *
+     *  @param channel where to write
+     *  @param buf the buffer being filled
+     *  @param count the number of ints in the section
+     *  @return the buffer, ready for more puts
+     *  @throws IOException if the write fails
+     */
+    private static ByteBuffer pad(FileChannel channel, ByteBuffer buf, int count) throws IOException {
+        if((count & 1) != 0) {
+            buf = drain(channel, buf, 4);
+            buf.putInt(0);
+        }
+        return buf;
+    }
+
+    /**
+     *  Writes out a buffer if it has less than the given room left.
+     *
+     *  @param channel where to write
+     *  @param buf the buffer being filled
+     *  @param room the number of bytes about to be put
+     *  @return the buffer, ready for more puts
+     *  @throws IOException if the write fails
+     */
+    private static ByteBuffer drain(FileChannel channel, ByteBuffer buf, int room) throws IOException {
+        if(buf.remaining() < room) {
+            buf.flip();
+            while(buf.hasRemaining()) {
+                channel.write(buf);
+            }
+            buf.clear();
+        }
+        return buf;
+    }
+
+    /**
+     *  Maps a graph file read-only. This only reads the header; the rest
+     *  of the file is paged in as it is used.
+     *
+     *  @param file the file to map
+     *  @return the mapped graph
+     *  @throws IOException if the file cannot be read or is not a graph file
+     */
+    public static ThreeTenMappedGraph map(Path file) throws IOException {
+        return new ThreeTenMappedGraph(file);
+    }
+
+    /**
+     *  Reads a graph file into a new, editable ThreeTenGraph.
+     *
+     *  @param file the file to read
+     *  @return the graph, with colors and costs restored if the file has them
+     *  @throws IOException if the file cannot be read or is not a graph file
+     */
+    public static ThreeTenGraph read(Path file) throws IOException {
+        ThreeTenMappedGraph mapped = map(file);
+        ThreeTenGraph graph = new ThreeTenGraph();
+        for(int v = 0; v < mapped.getVertexCount(); v++) {
+            graph.addVertex(mapped.getVertex(v));
+        }
+        for(int e = 0; e < mapped.getEdgeCount(); e++) {
+            graph.addEdge(mapped.getEdge(e), mapped.getVertex(mapped.firstEnd(e)), mapped.getVertex(mapped.secondEnd(e)));
+        }
+        return graph;
+    }
+
+    /**
+     *  Main method that round-trips graphs through the file format.
+     *
+     *  @param args command line arguments
+     *  @throws IOException if the temporary file cannot be used
+     */
+    public static void main(String[] args) throws IOException {
+        ThreeTenGraph graph = new ThreeTenGraph();
+        GraphNode[] nodes = new GraphNode[5];
+        for(int i = 0; i < nodes.length; i++) {
+            nodes[i] = new GraphNode(i);
+            nodes[i].setCost(10 + i);
+            graph.addVertex(nodes[i]);
+        }
+        nodes[2].setColor(Color.CYAN);
+        graph.addEdge(new GraphEdge(0), nodes[0], nodes[1]);
+        graph.addEdge(new GraphEdge(1), nodes[1], nodes[2]);
+        graph.addEdge(new GraphEdge(2), nodes[4], nodes[1]);
+
+        Path file = Files.createTempFile("threeten", ".graph");
+        try {
+            write(graph, file);
+            ThreeTenMappedGraph mapped = map(file);
+            if(mapped.getVertexCount() == 5 && mapped.getEdgeCount() == 3 && mapped.degree(1) == 3
+                && mapped.getVertex(2).getColor().equals(Color.CYAN) && mapped.getVertex(4).getCost() == 14) {
+                System.out.println("Yay 1");
+            }
+
+            ThreeTenGraph copy = read(file);
+            if(copy.getVertexCount() == 5 && copy.getEdgeCount() == 3 && copy.isNeighbor(nodes[4], nodes[1])
+                && !copy.isNeighbor(nodes[0], nodes[2]) && copy.findEdge(nodes[1], nodes[2]).id == 1) {
+                System.out.println("Yay 2");
+            }
+
+            write(graph, file, 0);
+            if(Files.size(file) == new Layout(0, 5, 3).length && map(file).getVertex(2).getColor().equals(Color.WHITE)) {
+                System.out.println("Yay 3");
+            }
+
+            ByteBuffer bad = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            bad.putInt(MAGIC).putInt(VERSION + 1);
+            Files.write(file, bad.array());
+            try {
+                map(file);
+            }
+            catch(IOException e) {
+                System.out.println("Yay 4");
+            }
+
+            //ids that are not 0..n-1 and 0..m-1 survive a round trip
+            ThreeTenGraph sparse = new ThreeTenGraph();
+            GraphNode a = new GraphNode(40);
+            GraphNode b = new GraphNode(7);
+            GraphNode c = new GraphNode(123);
+            sparse.addVertex(a);
+            sparse.addVertex(b);
+            sparse.addVertex(c);
+            sparse.addEdge(new GraphEdge(900), a, c);
+            sparse.addEdge(new GraphEdge(3), c, b);
+            write(sparse, file);
+            ThreeTenMappedGraph mappedSparse = map(file);
+            ThreeTenGraph sparseCopy = read(file);
+            if(Files.size(file) == new Layout(COLORS | COSTS | IDS, 3, 2).length
+                && mappedSparse.findEdge(a, c).id == 900 && mappedSparse.getOpposite(b, new GraphEdge(3)).id == 123
+                && mappedSparse.indexOf(new GraphNode(8)) == -1 && sparseCopy.getVertices().equals(sparse.getVertices())
+                && sparseCopy.findEdge(b, c).id == 3 && sparseCopy.getEdgeCount() == 2) {
+                System.out.println("Yay 5");
+            }
+        }
+        finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,15 @@
+/**
+ *  Gets told about every change to a ThreeTenGraph (see
+ *  ThreeTenGraph.addListener), so it can update what it derived from
+ *  the graph instead of reading the whole graph again.
+ */
+interface ThreeTenGraphListener {
+    /**
+     *  Called right after a vertex or edge was added or removed. Changes
+     *  that happen in one call (such as removing a vertex with its edges)
+     *  are reported one event at a time, all with the same version.
+     *
+     *  @param event what changed
+     */
+    public void graphChanged(ThreeTenGraphEvent event);
+}
\ No newline at end of file
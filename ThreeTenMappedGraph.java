@@ -0,0 +1,432 @@
+import java.awt.Color;
+
+import java.io.IOException;
+
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ *  A read-only graph whose CSR arrays live in a memory-mapped file
+ *  instead of on the heap, for graphs too large to hold as GraphNode and
+ *  GraphEdge objects. Only the pages of the file that are actually
+ *  touched are read in, and the operating system can drop them again
+ *  under memory pressure.
+ *
+ *  <p>Vertex v is the GraphNode with the id the file saved for it (v
+ *  if the file has no ids), and likewise for edges. These objects are
+ *  created the first time they are asked for and then kept, so colors
+ *  and costs set on them stick; the primitive neighbor methods never
+ *  create any, and neither does a ThreeTenColor run, which keeps its
+ *  results in columns (see ThreeTenColor.nodeColor). If the file has
+ *  saved colors or costs, a node gets them
+ *  when it is created. When the file has ids, the first indexOf call
+ *  builds an id-to-index map.
+ *
+ *  <p>The file format is described in ThreeTenGraphFile.
+ */
+class ThreeTenMappedGraph extends ThreeTenAbstractGraph {
+    /**
+     *  Materialized nodes and edges are kept in pages of this many entries.
+     */
+    private static final int PAGE_BITS = 12;
+
+    /**
+     *  The number of vertices.
+     */
+    private final int vertexCount;
+
+    /**
+     *  The number of edges.
+     */
+    private final int edgeCount;
+
+    /**
+     *  The mapped offsets section.
+     */
+    private final Region offsets;
+
+    /**
+     *  The mapped (neighbor, edge) entries section.
+     */
+    private final Region entries;
+
+    /**
+     *  The mapped edge endpoints section.
+     */
+    private final Region ends;
+
+    /**
+     *  The mapped node colors, or null if the file has none.
+     */
+    private final Region colors;
+
+    /**
+     *  The mapped node costs, or null if the file has none.
+     */
+    private final Region costs;
+
+    /**
+     *  The mapped GraphNode ids, or null if vertex v has id v.
+     */
+    private final Region nodeIds;
+
+    /**
+     *  The mapped GraphEdge ids, or null if edge e has id e.
+     */
+    private final Region edgeIds;
+
+    /**
+     *  GraphNode id to vertex index, built on first use (only with nodeIds).
+     */
+    private IntIntHashMap vertexIndex = null;
+
+    /**
+     *  GraphEdge id to edge index, built on first use (only with edgeIds).
+     */
+    private IntIntHashMap edgeIndex = null;
+
+    /**
+     *  Materialized nodes, allocated one page at a time.
+     */
+    private final GraphNode[][] nodePages;
+
+    /**
+     *  Materialized edges, allocated one page at a time.
+     */
+    private final GraphEdge[][] edgePages;
+
+    /**
+     *  A section of the file mapped as a sequence of fixed-size values.
+     *  A single MappedByteBuffer can only cover 2GB, so larger sections
+     *  are mapped in chunks; values never straddle two chunks.
+     */
+    private static class Region {
+        /**
+         *  Bytes per chunk (a multiple of every value size).
+         */
+        private static final int CHUNK_BITS = 30;
+
+        /**
+         *  The mapped chunks, in order.
+         */
+        private final MappedByteBuffer[] chunks;
+
+        /**
+         *  Maps a section of a file.
+         *
+         *  @param channel the open file
+         *  @param start the byte position the section starts at
+         *  @param bytes the length of the section in bytes
+         *  @throws IOException if the file cannot be mapped
+         */
+        Region(FileChannel channel, long start, long bytes) throws IOException {
+            int count = (int) ((bytes + (1L << CHUNK_BITS) - 1) >>> CHUNK_BITS);
+            chunks = new MappedByteBuffer[count];
+            for(int i = 0; i < count; i++) {
+                long pos = (long) i << CHUNK_BITS;
+                long size = Math.min(1L << CHUNK_BITS, bytes - pos);
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start + pos, size);
+                chunks[i].order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+
+        /**
+         *  Reads the i-th int of the section.
+         *
+         *  @param i the int index
+         *  @return the value
+         */
+        int getInt(long i) {
+            long pos = i << 2;
+            return chunks[(int) (pos >>> CHUNK_BITS)].getInt((int) (pos & ((1L << CHUNK_BITS) - 1)));
+        }
+
+        /**
+         *  Reads the i-th long of the section.
+         *
+         *  @param i the long index
+         *  @return the value
+         */
+        long getLong(long i) {
+            long pos = i << 3;
+            return chunks[(int) (pos >>> CHUNK_BITS)].getLong((int) (pos & ((1L << CHUNK_BITS) - 1)));
+        }
+    }
+
+    /**
+     *  Maps a graph file written by ThreeTenGraphFile.
+     *
+     *  @param file the file to open
+     *  @throws IOException if the file cannot be read or is not a graph file
+     */
+    public ThreeTenMappedGraph(Path file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ThreeTenGraphFile.Layout layout;
+            try {
+                layout = ThreeTenGraphFile.readLayout(channel);
+            }
+            catch(IOException e) {
+                throw new IOException(e.getMessage() + ": " + file, e);
+            }
+            vertexCount = layout.vertexCount;
+            edgeCount = layout.edgeCount;
+
+            offsets = new Region(channel, layout.offsetsAt, layout.entriesAt - layout.offsetsAt);
+            entries = new Region(channel, layout.entriesAt, layout.endsAt - layout.entriesAt);
+            ends = new Region(channel, layout.endsAt, 8L * edgeCount);
+            colors = (layout.colorsAt == -1) ? null : new Region(channel, layout.colorsAt, 4L * vertexCount);
+            costs = (layout.costsAt == -1) ? null : new Region(channel, layout.costsAt, 4L * vertexCount);
+            nodeIds = (layout.nodeIdsAt == -1) ? null : new Region(channel, layout.nodeIdsAt, 4L * vertexCount);
+            edgeIds = (layout.edgeIdsAt == -1) ? null : new Region(channel, layout.edgeIdsAt, 4L * edgeCount);
+        }
+
+        nodePages = new GraphNode[(vertexCount >>> PAGE_BITS) + 1][];
+        edgePages = new GraphEdge[(edgeCount >>> PAGE_BITS) + 1][];
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public GraphNode getVertex(int v) {
+        GraphNode[] page = nodePages[v >>> PAGE_BITS];
+        if(page == null) {
+            page = nodePages[v >>> PAGE_BITS] = new GraphNode[1 << PAGE_BITS];
+        }
+        GraphNode node = page[v & ((1 << PAGE_BITS) - 1)];
+        if(node == null) {
+            node = page[v & ((1 << PAGE_BITS) - 1)] = new GraphNode((nodeIds == null) ? v : nodeIds.getInt(v));
+            if(colors != null) {
+                node.setColor(new Color(colors.getInt(v), true));
+            }
+            if(costs != null) {
+                node.setCost(costs.getInt(v));
+            }
+        }
+        return node;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public GraphEdge getEdge(int e) {
+        GraphEdge[] page = edgePages[e >>> PAGE_BITS];
+        if(page == null) {
+            page = edgePages[e >>> PAGE_BITS] = new GraphEdge[1 << PAGE_BITS];
+        }
+        GraphEdge edge = page[e & ((1 << PAGE_BITS) - 1)];
+        if(edge == null) {
+            edge = page[e & ((1 << PAGE_BITS) - 1)] = new GraphEdge((edgeIds == null) ? e : edgeIds.getInt(e));
+        }
+        return edge;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int indexOf(GraphNode vertex) {
+        if(vertex == null || vertex.id < 0) {
+            return -1;
+        }
+        if(nodeIds == null) {
+            return (vertex.id < vertexCount) ? vertex.id : -1;
+        }
+        if(vertexIndex == null) {
+            vertexIndex = invert(nodeIds, vertexCount);
+        }
+        return vertexIndex.get(vertex.id);
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int indexOf(GraphEdge edge) {
+        if(edge == null || edge.id < 0) {
+            return -1;
+        }
+        if(edgeIds == null) {
+            return (edge.id < edgeCount) ? edge.id : -1;
+        }
+        if(edgeIndex == null) {
+            edgeIndex = invert(edgeIds, edgeCount);
+        }
+        return edgeIndex.get(edge.id);
+    }
+
+    /**
+     *  Reads the saved id without creating the node.
+     *
+     *  @param v the vertex index
+     *  @return the id of the vertex
+     */
+    @Override
+    public int vertexId(int v) {
+        return (nodeIds == null) ? v : nodeIds.getInt(v);
+    }
+
+    /**
+     *  Nodes and edges are created on demand.
+     *
+     *  @return false
+     */
+    @Override
+    public boolean holdsObjects() {
+        return false;
+    }
+
+    /**
+     *  Maps each saved id back to its index.
+     *
+     *  @param ids the mapped ids
+     *  @param count the number of ids
+     *  @return id to index
+     */
+    private static IntIntHashMap invert(Region ids, int count) {
+        IntIntHashMap index = new IntIntHashMap(count);
+        for(int i = 0; i < count; i++) {
+            index.put(ids.getInt(i), i);
+        }
+        return index;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int degree(int v) {
+        return (int) (offsets.getLong(v + 1) - offsets.getLong(v));
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int neighborAt(int v, int i) {
+        return entries.getInt(2 * (offsets.getLong(v) + i));
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int edgeAt(int v, int i) {
+        return entries.getInt(2 * (offsets.getLong(v) + i) + 1);
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int firstEnd(int e) {
+        return ends.getInt(2L * e);
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    public int secondEnd(int e) {
+        return ends.getInt(2L * e + 1);
+    }
+
+    /**
+     *  Neighbor runs are sorted, so this binary searches the shorter one.
+     *
+     *  @param u the first vertex index
+     *  @param v the second vertex index
+     *  @return the index of a connecting edge, or -1 if there is none
+     */
+    @Override
+    public int findEdge(int u, int v) {
+        if(degree(v) < degree(u)) {
+            int tmp = u; u = v; v = tmp;
+        }
+        long lo = offsets.getLong(u);
+        long hi = offsets.getLong(u + 1) - 1;
+        while(lo <= hi) {
+            long mid = (lo + hi) >>> 1;
+            int w = entries.getInt(2 * mid);
+            if(w < v) lo = mid + 1;
+            else if(w > v) hi = mid - 1;
+            else return entries.getInt(2 * mid + 1);
+        }
+        return -1;
+    }
+
+    /**
+     *  Main method that round-trips a graph through a mapped file.
+     *
+     *  @param args command line arguments
+     *  @throws IOException if the temporary file cannot be used
+     */
+    public static void main(String[] args) throws IOException {
+        ThreeTenGraph graph = new ThreeTenGraph();
+        GraphNode[] nodes = new GraphNode[6];
+        for(int i = 0; i < nodes.length; i++) {
+            nodes[i] = new GraphNode(i);
+            graph.addVertex(nodes[i]);
+        }
+        graph.addEdge(new GraphEdge(0), nodes[0], nodes[1]);
+        graph.addEdge(new GraphEdge(1), nodes[2], nodes[0]);
+        graph.addEdge(new GraphEdge(2), nodes[3], nodes[2]);
+        graph.addEdge(new GraphEdge(3), nodes[4], nodes[0]);
+
+        Path file = Files.createTempFile("threeten", ".graph");
+        try {
+            ThreeTenGraphFile.write(graph, file);
+            ThreeTenMappedGraph mapped = new ThreeTenMappedGraph(file);
+
+            if(mapped.getVertexCount() == 6 && mapped.getEdgeCount() == 4) {
+                System.out.println("Yay 1");
+            }
+            if(mapped.degree(0) == 3 && mapped.degree(5) == 0 && mapped.neighborAt(0, 2) == 4
+                && mapped.getNeighbors(nodes[0]).contains(nodes[4])) {
+                System.out.println("Yay 2");
+            }
+            if(mapped.findEdge(nodes[0], nodes[4]).id == 3 && mapped.findEdge(nodes[1], nodes[2]) == null
+                && mapped.getVertex(3) == mapped.getVertex(3) && mapped.getOpposite(nodes[3], new GraphEdge(2)).id == 2) {
+                System.out.println("Yay 3");
+            }
+
+            //a coloring run keeps its results in columns and makes no objects
+            ThreeTenMappedGraph fresh = new ThreeTenMappedGraph(file);
+            ThreeTenColor alg = new ThreeTenColor();
+            alg.reset(fresh);
+            while(alg.step()) {
+            }
+            boolean proper = true;
+            for(int e = 0; e < fresh.getEdgeCount(); e++) {
+                proper &= !alg.nodeColor(fresh.firstEnd(e)).equals(alg.nodeColor(fresh.secondEnd(e)))
+                    && alg.edgeColor(e).equals(ThreeTenColor.COLOR_NONE_EDGE);
+            }
+            boolean untouched = fresh.nodePages[0] == null && fresh.edgePages[0] == null;
+
+            Files.write(file, new byte[] {1, 2, 3});
+            try {
+                new ThreeTenMappedGraph(file);
+            }
+            catch(IOException e) {
+                System.out.println("Yay 4");
+            }
+            if(proper && untouched) {
+                System.out.println("Yay 5");
+            }
+        }
+        finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,103 @@
+import java.util.Arrays;
+
+/**
+ *  Vertex orders for laying out a frozen graph (see
+ *  ThreeTenCsrGraph.ordered). Vertices that are scanned together end up
+ *  next to each other in the arrays, which makes neighbor scans more
+ *  cache friendly. Only the array positions change: every vertex is
+ *  still the same GraphNode with the same id.
+ *
+ *  <p>Computing an order costs time of its own, and on large graphs
+ *  BFS and RCM measured slower than NONE overall (see ThreeTenBenchmark),
+ *  so NONE is the default everywhere.
+ */
+enum ThreeTenOrdering {
+    /**
+     *  Keep the order the graph lists its vertices in.
+     */
+    NONE,
+
+    /**
+     *  Highest degree first, so the most visited vertices share cache lines.
+     */
+    DEGREE,
+
+    /**
+     *  Breadth-first search order, one component after another.
+     */
+    BFS,
+
+    /**
+     *  Reverse Cuthill-McKee: breadth-first from a low degree vertex,
+     *  visiting neighbors by increasing degree, then reversed. Keeps
+     *  neighbors close together (small bandwidth).
+     */
+    RCM;
+
+    /**
+     *  Computes this order for a graph with dense vertex indexes.
+     *
+     *  @param graph the graph, with vertex indexes 0..n-1
+     *  @param n the number of vertices
+     *  @return order[i] is the vertex index that should come i-th
+     */
+    public int[] permutation(ThreeTenAdjacency graph, int n) {
+        int[] order = new int[n];
+        if(this == NONE) {
+            for(int i = 0; i < n; i++) order[i] = i;
+            return order;
+        }
+
+        //counting sort by degree, ascending and stable
+        int maxDegree = 0;
+        for(int v = 0; v < n; v++) maxDegree = Math.max(maxDegree, graph.degree(v));
+        int[] start = new int[maxDegree + 2];
+        for(int v = 0; v < n; v++) start[graph.degree(v) + 1]++;
+        for(int d = 0; d <= maxDegree; d++) start[d + 1] += start[d];
+        int[] byDegree = new int[n];
+        for(int v = 0; v < n; v++) byDegree[start[graph.degree(v)]++] = v;
+
+        if(this == DEGREE) {
+            for(int i = 0; i < n; i++) order[i] = byDegree[n - 1 - i];
+            return order;
+        }
+
+        //BFS and RCM: start each component at its lowest degree vertex
+        boolean[] seen = new boolean[n];
+        long[] scratch = new long[maxDegree];
+        int tail = 0;
+        for(int root : byDegree) {
+            if(seen[root]) continue;
+            seen[root] = true;
+            int head = tail;
+            order[tail++] = root;
+            while(head < tail) {
+                int u = order[head++];
+                int first = tail;
+                for(int i = 0, d = graph.degree(u); i < d; i++) {
+                    int w = graph.neighborAt(u, i);
+                    if(!seen[w]) {
+                        seen[w] = true;
+                        order[tail++] = w;
+                    }
+                }
+                if(this == RCM) {
+                    //visit the new vertices by increasing degree
+                    int k = tail - first;
+                    for(int i = 0; i < k; i++) {
+                        scratch[i] = ((long) graph.degree(order[first + i]) << 32) | order[first + i];
+                    }
+                    Arrays.sort(scratch, 0, k);
+                    for(int i = 0; i < k; i++) order[first + i] = (int) scratch[i];
+                }
+            }
+        }
+
+        if(this == RCM) {
+            for(int i = 0, j = n - 1; i < j; i++, j--) {
+                int tmp = order[i]; order[i] = order[j]; order[j] = tmp;
+            }
+        }
+        return order;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,125 @@
+import java.awt.Color;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ *  The colors the coloring algorithm hands out, by color index. The
+ *  first ones are ThreeTenColor.COLORS; after those, new colors are
+ *  generated on demand by stepping the hue around the color wheel, so
+ *  any number of colors can be used. Every palette color is distinct
+ *  and differs from the colors the algorithm uses for other states
+ *  (none, inactive, highlight, warning).
+ */
+class ThreeTenPalette {
+    /**
+     *  The colors generated so far. Replaced (never changed) when it grows.
+     */
+    private static volatile Color[] colors = ThreeTenColor.COLORS.clone();
+
+    /**
+     *  Maps each palette color to its index.
+     */
+    private static final ConcurrentHashMap<Color, Integer> indexes = new ConcurrentHashMap<>();
+
+    /**
+     *  How many hues have been tried so far for generated colors.
+     */
+    private static int tried = 0;
+
+    static {
+        for(int i = 0; i < colors.length; i++) {
+            indexes.put(colors[i], i);
+        }
+    }
+
+    /**
+     *  Returns the color with an index, generating it if needed.
+     *
+     *  @param index the color index
+     *  @return the color
+     */
+    public static Color color(int index) {
+        Color[] current = colors;
+        if(index < current.length) {
+            return current[index];
+        }
+        return grow(index);
+    }
+
+    /**
+     *  Returns the index of a palette color.
+     *
+     *  @param c the color
+     *  @return its index, or -1 if it is not a palette color
+     */
+    public static int indexOf(Color c) {
+        if(c == null) {
+            return -1;
+        }
+        Integer index = indexes.get(c);
+        return (index == null) ? -1 : index;
+    }
+
+    /**
+     *  Generates colors up to an index.
+     *
+     *  @param index the index needed
+     *  @return the color with that index
+     */
+    private static synchronized Color grow(int index) {
+        Color[] grown = colors;
+        if(index < grown.length) {
+            return grown[index];
+        }
+        int size = grown.length;
+        grown = Arrays.copyOf(grown, Math.max(index + 1, 2 * size));
+        while(size < grown.length) {
+            //golden ratio steps spread the hues; saturation and brightness vary too
+            int k = tried++;
+            float hue = (k * 0.618034f) % 1f;
+            float saturation = 0.45f + 0.5f * ((k / 7) % 3) / 2f;
+            float brightness = 1f - 0.25f * ((k / 3) % 3) / 2f;
+            Color c = Color.getHSBColor(hue, saturation, brightness);
+            if(!indexes.containsKey(c) && !isReserved(c)) {
+                indexes.put(c, size);
+                grown[size++] = c;
+            }
+        }
+        colors = grown;
+        return grown[index];
+    }
+
+    /**
+     *  Tells whether a color marks some state other than a color choice.
+     *
+     *  @param c the color
+     *  @return true if the algorithm uses it for something else
+     */
+    private static boolean isReserved(Color c) {
+        return c.equals(ThreeTenColor.COLOR_NONE_NODE) || c.equals(ThreeTenColor.COLOR_NONE_EDGE)
+            || c.equals(ThreeTenColor.COLOR_INACTIVE_NODE) || c.equals(ThreeTenColor.COLOR_HIGHLIGHT)
+            || c.equals(ThreeTenColor.COLOR_WARNING);
+    }
+
+    /**
+     *  Main method that checks the generated colors.
+     *
+     *  @param args command line arguments
+     */
+    public static void main(String[] args) {
+        if(color(0) == ThreeTenColor.COLORS[0] && indexOf(ThreeTenColor.COLORS[7]) == 7
+            && indexOf(ThreeTenColor.COLOR_WARNING) == -1 && indexOf(null) == -1) {
+            System.out.println("Yay 1");
+        }
+
+        Color last = color(999);
+        boolean distinct = (indexOf(last) == 999);
+        for(int i = 0; i < 1000; i++) {
+            distinct &= indexOf(color(i)) == i && !isReserved(color(i));
+        }
+        if(distinct) {
+            System.out.println("Yay 2");
+        }
+    }
+}
\ No newline at end of file
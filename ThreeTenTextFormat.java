@@ -0,0 +1,600 @@
+import edu.uci.ics.jung.graph.Graph;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import java.util.Arrays;
+
+/**
+ *  Streaming readers and writers for the common plain-text graph
+ *  formats, so the standard benchmark instances can be loaded:
+ *  <ul>
+ *  <li>DIMACS .col: "p edge n m" then one "e u v" line per edge, 1-based</li>
+ *  <li>edge list: one "u v" line per edge, 0-based</li>
+ *  <li>METIS: "n m" then line i lists the neighbors of vertex i, 1-based</li>
+ *  </ul>
+ *  Input is read through a channel in large chunks and parsed byte by
+ *  byte, so no String is created per line. Vertex i (0-based) becomes the
+ *  GraphNode with id i. Self loops and repeated edges are dropped.
+ */
+class ThreeTenTextFormat {
+    /**
+     *  The size of the read and write buffers.
+     */
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    /**
+     *  Splits a byte channel into numbers and line ends.
+     *  Spaces, tabs and carriage returns only separate tokens.
+     */
+    private static class Tokenizer {
+        /**
+         *  Where the bytes come from.
+         */
+        private final ReadableByteChannel in;
+
+        /**
+         *  The current chunk of input.
+         */
+        private final ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+        /**
+         *  The line being read (1-based), for error messages.
+         */
+        private int line = 1;
+
+        /**
+         *  Whether the channel has been read to the end.
+         */
+        private boolean done = false;
+
+        /**
+         *  Wraps a channel.
+         *
+         *  @param in the channel to read
+         */
+        Tokenizer(ReadableByteChannel in) {
+            this.in = in;
+            buf.limit(0);
+        }
+
+        /**
+         *  Returns the next byte without consuming it.
+         *
+         *  @return the next byte, or -1 at the end of the input
+         *  @throws IOException if the read fails
+         */
+        int peek() throws IOException {
+            while(!buf.hasRemaining()) {
+                if(done) {
+                    return -1;
+                }
+                buf.clear();
+                done = (in.read(buf) == -1);
+                buf.flip();
+            }
+            return buf.get(buf.position());
+        }
+
+        /**
+         *  Skips spaces, tabs and carriage returns, then returns the next
+         *  byte without consuming it.
+         *
+         *  @return the next byte, or -1 at the end of the input
+         *  @throws IOException if the read fails
+         */
+        int peekToken() throws IOException {
+            int c = peek();
+            while(c == ' ' || c == '\t' || c == '\r') {
+                buf.get();
+                c = peek();
+            }
+            return c;
+        }
+
+        /**
+         *  Tells whether the rest of the current line is blank.
+         *
+         *  @return true at a line end or the end of the input
+         *  @throws IOException if the read fails
+         */
+        boolean atLineEnd() throws IOException {
+            int c = peekToken();
+            return c == '\n' || c == -1;
+        }
+
+        /**
+         *  Consumes the rest of the current line, including its line end.
+         *
+         *  @throws IOException if the read fails
+         */
+        void skipLine() throws IOException {
+            for(int c = peek(); c != -1; c = peek()) {
+                buf.get();
+                if(c == '\n') {
+                    line++;
+                    return;
+                }
+            }
+        }
+
+        /**
+         *  Consumes a word made of letters.
+         *
+         *  @throws IOException if the read fails
+         */
+        void skipWord() throws IOException {
+            peekToken();
+            for(int c = peek(); (c | 0x20) >= 'a' && (c | 0x20) <= 'z'; c = peek()) {
+                buf.get();
+            }
+        }
+
+        /**
+         *  Parses a non-negative decimal number.
+         *
+         *  @return the number
+         *  @throws IOException if the read fails or there is no number here
+         */
+        int nextInt() throws IOException {
+            int c = peekToken();
+            if(c < '0' || c > '9') {
+                throw error("expected a number");
+            }
+            long value = 0;
+            for(; c >= '0' && c <= '9'; c = peek()) {
+                value = value * 10 + (c - '0');
+                if(value > Integer.MAX_VALUE) {
+                    throw error("number too large");
+                }
+                buf.get();
+            }
+            return (int) value;
+        }
+
+        /**
+         *  Makes an exception for malformed input.
+         *
+         *  @param message what was wrong
+         *  @return the exception, tagged with the line number
+         */
+        IOException error(String message) {
+            return new IOException("line " + line + ": " + message);
+        }
+    }
+
+    /**
+     *  A growable list of (src, dst) vertex pairs.
+     */
+    private static class Pairs {
+        /**
+         *  First endpoints.
+         */
+        int[] src = new int[16];
+
+        /**
+         *  Second endpoints.
+         */
+        int[] dst = new int[16];
+
+        /**
+         *  The number of pairs.
+         */
+        int size = 0;
+
+        /**
+         *  The largest vertex seen, or -1.
+         */
+        int max = -1;
+
+        /**
+         *  Appends a pair.
+         *
+         *  @param u the first endpoint
+         *  @param v the second endpoint
+         */
+        void add(int u, int v) {
+            if(size == src.length) {
+                src = Arrays.copyOf(src, 2 * size);
+                dst = Arrays.copyOf(dst, 2 * size);
+            }
+            src[size] = u;
+            dst[size] = v;
+            size++;
+            max = Math.max(max, Math.max(u, v));
+        }
+    }
+
+    /**
+     *  Reads a DIMACS .col graph. Comment ("c") lines and any other line
+     *  types are skipped.
+     *
+     *  @param in the channel to read
+     *  @return the graph
+     *  @throws IOException if the read fails or the input is malformed
+     */
+    public static ThreeTenGraph readDimacs(ReadableByteChannel in) throws IOException {
+        Tokenizer tok = new Tokenizer(in);
+        Pairs pairs = new Pairs();
+        int n = -1;
+        for(int c = tok.peekToken(); c != -1; tok.skipLine(), c = tok.peekToken()) {
+            if(c == 'p') {
+                tok.skipWord();
+                tok.skipWord();
+                n = tok.nextInt();
+                tok.nextInt();
+            }
+            else if(c == 'e') {
+                tok.skipWord();
+                if(n == -1) {
+                    throw tok.error("edge before the problem line");
+                }
+                int u = tok.nextInt() - 1;
+                int v = tok.nextInt() - 1;
+                if(u < 0 || v < 0 || u >= n || v >= n) {
+                    throw tok.error("vertex out of range");
+                }
+                pairs.add(u, v);
+            }
+        }
+        if(n == -1) {
+            throw tok.error("missing problem line");
+        }
+        return build(n, pairs);
+    }
+
+    /**
+     *  Reads a plain edge list. Lines starting with '#' or '%' are
+     *  comments; the vertex count is one more than the largest vertex.
+     *
+     *  @param in the channel to read
+     *  @return the graph
+     *  @throws IOException if the read fails or the input is malformed
+     */
+    public static ThreeTenGraph readEdgeList(ReadableByteChannel in) throws IOException {
+        Tokenizer tok = new Tokenizer(in);
+        Pairs pairs = new Pairs();
+        for(int c = tok.peekToken(); c != -1; tok.skipLine(), c = tok.peekToken()) {
+            if(c != '#' && c != '%' && c != '\n') {
+                pairs.add(tok.nextInt(), tok.nextInt());
+            }
+        }
+        return build(pairs.max + 1, pairs);
+    }
+
+    /**
+     *  Reads a METIS graph. Vertex sizes, vertex weights and edge weights
+     *  are allowed (as given by the format field of the header) but
+     *  skipped.
+     *
+     *  @param in the channel to read
+     *  @return the graph
+     *  @throws IOException if the read fails or the input is malformed
+     */
+    public static ThreeTenGraph readMetis(ReadableByteChannel in) throws IOException {
+        Tokenizer tok = new Tokenizer(in);
+        while(tok.peekToken() == '%') {
+            tok.skipLine();
+        }
+        int n = tok.nextInt();
+        tok.nextInt();
+        int format = tok.atLineEnd() ? 0 : tok.nextInt();
+        boolean vertexSizes = (format / 100) % 10 != 0;
+        int vertexWeights = ((format / 10) % 10 == 0) ? 0 : (tok.atLineEnd() ? 1 : tok.nextInt());
+        boolean edgeWeights = (format % 10) != 0;
+        tok.skipLine();
+
+        Pairs pairs = new Pairs();
+        for(int u = 0; u < n; tok.skipLine()) {
+            if(tok.peekToken() == '%') {
+                continue;
+            }
+            if(tok.peekToken() == -1) {
+                throw tok.error("expected " + n + " vertex lines");
+            }
+            if(vertexSizes) {
+                tok.nextInt();
+            }
+            for(int i = 0; i < vertexWeights; i++) {
+                tok.nextInt();
+            }
+            while(!tok.atLineEnd()) {
+                int v = tok.nextInt() - 1;
+                if(v < 0 || v >= n) {
+                    throw tok.error("vertex out of range");
+                }
+                if(edgeWeights) {
+                    tok.nextInt();
+                }
+                if(u < v) {
+                    pairs.add(u, v);
+                }
+            }
+            u++;
+        }
+        return build(n, pairs);
+    }
+
+    /**
+     *  Builds a graph from vertex pairs, dropping self loops and repeats.
+     *
+     *  @param n the number of vertices
+     *  @param pairs the edges
+     *  @return the graph
+     */
+    private static ThreeTenGraph build(int n, Pairs pairs) {
+        ThreeTenGraph graph = new ThreeTenGraph();
+        GraphNode[] nodes = new GraphNode[n];
+        for(int i = 0; i < n; i++) {
+            nodes[i] = new GraphNode(i);
+        }
+        graph.addVertices(Arrays.asList(nodes));
+        graph.addEdges(Arrays.copyOf(pairs.src, pairs.size), Arrays.copyOf(pairs.dst, pairs.size));
+        return graph;
+    }
+
+    /**
+     *  Formats numbers and text into a channel without making Strings.
+     */
+    private static class Printer {
+        /**
+         *  Where the bytes go.
+         */
+        private final WritableByteChannel out;
+
+        /**
+         *  Bytes waiting to be written.
+         */
+        private final ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+        /**
+         *  Scratch space for the digits of one number.
+         */
+        private final byte[] digits = new byte[10];
+
+        /**
+         *  Wraps a channel.
+         *
+         *  @param out the channel to write
+         */
+        Printer(WritableByteChannel out) {
+            this.out = out;
+        }
+
+        /**
+         *  Writes out the buffer if it has less than the given room left.
+         *
+         *  @param room the number of bytes about to be put
+         *  @throws IOException if the write fails
+         */
+        private void ensure(int room) throws IOException {
+            if(buf.remaining() < room) {
+                flush();
+            }
+        }
+
+        /**
+         *  Writes out everything buffered so far.
+         *
+         *  @throws IOException if the write fails
+         */
+        void flush() throws IOException {
+            buf.flip();
+            while(buf.hasRemaining()) {
+                out.write(buf);
+            }
+            buf.clear();
+        }
+
+        /**
+         *  Writes one ASCII character.
+         *
+         *  @param c the character
+         *  @return this printer
+         *  @throws IOException if the write fails
+         */
+        Printer put(char c) throws IOException {
+            ensure(1);
+            buf.put((byte) c);
+            return this;
+        }
+
+        /**
+         *  Writes ASCII text.
+         *
+         *  @param s the text
+         *  @return this printer
+         *  @throws IOException if the write fails
+         */
+        Printer put(String s) throws IOException {
+            for(int i = 0; i < s.length(); i++) {
+                put(s.charAt(i));
+            }
+            return this;
+        }
+
+        /**
+         *  Writes a non-negative number in decimal.
+         *
+         *  @param value the number
+         *  @return this printer
+         *  @throws IOException if the write fails
+         */
+        Printer put(int value) throws IOException {
+            int k = digits.length;
+            do {
+                digits[--k] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while(value != 0);
+            ensure(digits.length - k);
+            buf.put(digits, k, digits.length - k);
+            return this;
+        }
+    }
+
+    /**
+     *  Freezes a graph (if needed) so its vertices are numbered densely.
+     *
+     *  @param graph the graph
+     *  @return a dense, index-based view of it
+     */
+    private static ThreeTenAbstractGraph dense(Graph<GraphNode,GraphEdge> graph) {
+        return (graph instanceof ThreeTenCsrGraph || graph instanceof ThreeTenMappedGraph)
+            ? (ThreeTenAbstractGraph) graph : new ThreeTenCsrGraph(graph);
+    }
+
+    /**
+     *  Writes a graph in DIMACS .col form. Vertices are renumbered in the
+     *  order the graph lists them.
+     *
+     *  @param graph the graph to write
+     *  @param out the channel to write
+     *  @throws IOException if the write fails
+     */
+    public static void writeDimacs(Graph<GraphNode,GraphEdge> graph, WritableByteChannel out) throws IOException {
+        ThreeTenAbstractGraph g = dense(graph);
+        Printer p = new Printer(out);
+        p.put("p edge ").put(g.getVertexCount()).put(' ').put(g.getEdgeCount()).put('\n');
+        for(int e = 0; e < g.getEdgeCount(); e++) {
+            p.put("e ").put(g.firstEnd(e) + 1).put(' ').put(g.secondEnd(e) + 1).put('\n');
+        }
+        p.flush();
+    }
+
+    /**
+     *  Writes a graph as a 0-based edge list. Vertices are renumbered in
+     *  the order the graph lists them. The format has no vertex count, so
+     *  isolated vertices after the last one with an edge are not kept.
+     *
+     *  @param graph the graph to write
+     *  @param out the channel to write
+     *  @throws IOException if the write fails
+     */
+    public static void writeEdgeList(Graph<GraphNode,GraphEdge> graph, WritableByteChannel out) throws IOException {
+        ThreeTenAbstractGraph g = dense(graph);
+        Printer p = new Printer(out);
+        for(int e = 0; e < g.getEdgeCount(); e++) {
+            p.put(g.firstEnd(e)).put(' ').put(g.secondEnd(e)).put('\n');
+        }
+        p.flush();
+    }
+
+    /**
+     *  Writes a graph in METIS form (no weights). Vertices are renumbered
+     *  in the order the graph lists them. METIS has no self loops, so
+     *  they are left out (and not counted in the header).
+     *
+     *  @param graph the graph to write
+     *  @param out the channel to write
+     *  @throws IOException if the write fails
+     */
+    public static void writeMetis(Graph<GraphNode,GraphEdge> graph, WritableByteChannel out) throws IOException {
+        ThreeTenAbstractGraph g = dense(graph);
+        int loops = 0;
+        for(int e = 0; e < g.getEdgeCount(); e++) {
+            if(g.firstEnd(e) == g.secondEnd(e)) {
+                loops++;
+            }
+        }
+        Printer p = new Printer(out);
+        p.put(g.getVertexCount()).put(' ').put(g.getEdgeCount() - loops).put('\n');
+        for(int v = 0; v < g.getVertexCount(); v++) {
+            boolean first = true;
+            for(int i = 0, d = g.degree(v); i < d; i++) {
+                int w = g.neighborAt(v, i);
+                if(w == v) {
+                    continue;
+                }
+                if(!first) p.put(' ');
+                p.put(w + 1);
+                first = false;
+            }
+            p.put('\n');
+        }
+        p.flush();
+    }
+
+    /**
+     *  Wraps text in a channel, for the tests in main.
+     *
+     *  @param text the text
+     *  @return a channel that reads the text
+     */
+    private static ReadableByteChannel channel(String text) {
+        return Channels.newChannel(new ByteArrayInputStream(text.getBytes()));
+    }
+
+    /**
+     *  Main method that parses and round-trips small graphs.
+     *
+     *  @param args command line arguments
+     *  @throws IOException if parsing fails
+     */
+    public static void main(String[] args) throws IOException {
+        ThreeTenGraph g1 = readDimacs(channel("c a triangle\r\np edge 4 4\r\ne 1 2\r\ne 2 3\r\ne 3 1\r\ne 2 1\r\n"));
+        if(g1.getVertexCount() == 4 && g1.getEdgeCount() == 3 && g1.isNeighbor(new GraphNode(0), new GraphNode(2))) {
+            System.out.println("Yay 1");
+        }
+
+        ThreeTenGraph g2 = readEdgeList(channel("# comment\n0 1\n1 2\n\n2 2\n5 0"));
+        if(g2.getVertexCount() == 6 && g2.getEdgeCount() == 3 && g2.degree(new GraphNode(0)) == 2) {
+            System.out.println("Yay 2");
+        }
+
+        ThreeTenGraph g3 = readMetis(channel("% comment\n4 3 1\n2 7 3 1\n1 7\n1 1\n\n"));
+        ThreeTenGraph sized = readMetis(channel("3 2 111\n9 4 2 7\n9 4 1 7 3 5\n9 4 2 5\n"));
+        if(g3.getVertexCount() == 4 && g3.getEdgeCount() == 2 && g3.degree(new GraphNode(3)) == 0
+            && sized.getEdgeCount() == 2 && sized.isNeighbor(new GraphNode(1), new GraphNode(2))
+            && !sized.isNeighbor(new GraphNode(0), new GraphNode(2))) {
+            System.out.println("Yay 3");
+        }
+
+        boolean same = true;
+        for(int format = 0; format < 3; format++) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            WritableByteChannel out = Channels.newChannel(bytes);
+            ThreeTenGraph back;
+            if(format == 0) {
+                writeDimacs(g1, out);
+                back = readDimacs(channel(bytes.toString()));
+            }
+            else if(format == 1) {
+                writeEdgeList(g1, out);
+                back = readEdgeList(channel(bytes.toString()));
+            }
+            else {
+                writeMetis(g1, out);
+                back = readMetis(channel(bytes.toString()));
+            }
+            same &= back.getEdgeCount() == 3 && back.isNeighbor(new GraphNode(1), new GraphNode(2));
+        }
+        ThreeTenGraph looped = new ThreeTenGraph();
+        GraphNode a = new GraphNode(0);
+        GraphNode b = new GraphNode(1);
+        looped.addVertex(a);
+        looped.addVertex(b);
+        looped.addEdge(new GraphEdge(0), a, b);
+        looped.addEdge(new GraphEdge(1), b, b);
+        ByteArrayOutputStream loopBytes = new ByteArrayOutputStream();
+        writeMetis(looped, Channels.newChannel(loopBytes));
+        same &= loopBytes.toString().equals("2 1\n2\n1\n") && readMetis(channel(loopBytes.toString())).getEdgeCount() == 1;
+        if(same) {
+            System.out.println("Yay 4");
+        }
+
+        try {
+            readDimacs(channel("p edge 2 1\ne 1 x\n"));
+        }
+        catch(IOException e) {
+            if(e.getMessage().startsWith("line 2")) {
+                System.out.println("Yay 5");
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,297 @@
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Priority queue of int ids with small int keys (0 to maxKey), kept as
+ * one doubly linked list ("bucket") per key. Adding, removing and
+ * changing the key of an id are O(1); finding the largest or smallest
+ * key moves a pointer over empty buckets, which adds up to O(maxKey)
+ * over a run as long as keys only go one way (as in smallest-last
+ * ordering, where degrees only go down). An alternative to
+ * WeissIntPriorityQueue when keys are degrees or costs bounded by the
+ * number of vertices.
+ *
+ * Ids with equal keys come out in the order they were put in their
+ * bucket (first in, first out), whether taken from the largest or the
+ * smallest end.
+ */
+public class WeissBucketQueue
+{
+    /**
+     * Marks the end of a list, and ids that are not queued.
+     */
+    private static final int NONE = -1;
+    /**
+     * number of ids in the queue.
+     */
+    private int currentSize;
+    /**
+     * The first id of each bucket.
+     */
+    private final int [] head;
+    /**
+     * The last id of each bucket.
+     */
+    private final int [] tail;
+    /**
+     * The next id in the same bucket.
+     */
+    private final int [] next;
+    /**
+     * The previous id in the same bucket.
+     */
+    private final int [] prev;
+    /**
+     * The key of each id, NONE if it is not queued.
+     */
+    private final int [] keys;
+    /**
+     * No bucket above this one has ids in it.
+     */
+    private int maxKey;
+    /**
+     * No bucket below this one has ids in it.
+     */
+    private int minKey;
+
+    /**
+     * Construct an empty queue.
+     *
+     * @param capacity one more than the largest id that will be added
+     * @param largestKey the largest key that will be used
+     */
+    public WeissBucketQueue(int capacity, int largestKey) {
+        currentSize = 0;
+        head = new int[largestKey + 1];
+        tail = new int[largestKey + 1];
+        next = new int[capacity];
+        prev = new int[capacity];
+        keys = new int[capacity];
+        java.util.Arrays.fill(head, NONE);
+        java.util.Arrays.fill(tail, NONE);
+        java.util.Arrays.fill(keys, NONE);
+        maxKey = 0;
+        minKey = largestKey;
+    }
+
+    /**
+     * Adds an id at the end of the bucket for its key.
+     * @param id an id that is not in the queue.
+     * @param key its key, 0 to the largest key.
+     * @throws IllegalArgumentException if the id is already queued or the key is out of range.
+     */
+    public void add(int id, int key) {
+        if(keys[id] != NONE)
+            throw new IllegalArgumentException("id " + id + " is already in the queue");
+        if(key < 0 || key >= head.length)
+            throw new IllegalArgumentException("key out of range: " + key);
+        link(id, key);
+        currentSize++;
+    }
+
+    /**
+     * Puts an id at the end of a bucket.
+     * @param id the id.
+     * @param key the bucket.
+     */
+    private void link(int id, int key) {
+        keys[id] = key;
+        next[id] = NONE;
+        prev[id] = tail[key];
+        if(tail[key] == NONE)
+            head[key] = id;
+        else
+            next[tail[key]] = id;
+        tail[key] = id;
+        if(key > maxKey) maxKey = key;
+        if(key < minKey) minKey = key;
+    }
+
+    /**
+     * Takes an id out of its bucket.
+     * @param id the id.
+     */
+    private void unlink(int id) {
+        int key = keys[id];
+        if(prev[id] == NONE)
+            head[key] = next[id];
+        else
+            next[prev[id]] = next[id];
+        if(next[id] == NONE)
+            tail[key] = prev[id];
+        else
+            prev[next[id]] = prev[id];
+        keys[id] = NONE;
+    }
+
+    /**
+     * Returns the number of ids in this queue.
+     * @return the number of ids in this queue.
+     */
+    public int size() {
+        return currentSize;
+    }
+
+    /**
+     * Tests if this queue is empty.
+     * @return true if the size is zero.
+     */
+    public boolean isEmpty() {
+        return currentSize == 0;
+    }
+
+    /**
+     * Tests if an id is in the queue.
+     * @param id the id.
+     * @return true if it is queued.
+     */
+    public boolean contains(int id) {
+        return keys[id] != NONE;
+    }
+
+    /**
+     * Returns the key of a queued id.
+     * @param id the id.
+     * @return its key, or -1 if it is not queued.
+     */
+    public int getKey(int id) {
+        return keys[id];
+    }
+
+    /**
+     * Moves a queued id to the end of the bucket for a new key.
+     * @param id the id.
+     * @param key its new key.
+     * @return true if the id was in the queue.
+     */
+    public boolean update(int id, int key) {
+        if(keys[id] == NONE)
+            return false;
+        if(key < 0 || key >= head.length)
+            throw new IllegalArgumentException("key out of range: " + key);
+        unlink(id);
+        link(id, key);
+        return true;
+    }
+
+    /**
+     * Removes a queued id.
+     * @param id the id.
+     * @return true if it was in the queue.
+     */
+    public boolean remove(int id) {
+        if(keys[id] == NONE)
+            return false;
+        unlink(id);
+        currentSize--;
+        return true;
+    }
+
+    /**
+     * Returns the first id with the largest key.
+     * @return the id.
+     * @throws NoSuchElementException if empty.
+     */
+    public int elementMax() {
+        if(isEmpty())
+            throw new NoSuchElementException();
+        while(head[maxKey] == NONE)
+            maxKey--;
+        return head[maxKey];
+    }
+
+    /**
+     * Returns the first id with the smallest key.
+     * @return the id.
+     * @throws NoSuchElementException if empty.
+     */
+    public int elementMin() {
+        if(isEmpty())
+            throw new NoSuchElementException();
+        while(head[minKey] == NONE)
+            minKey++;
+        return head[minKey];
+    }
+
+    /**
+     * Removes the first id with the largest key.
+     * @return the removed id.
+     * @throws NoSuchElementException if empty.
+     */
+    public int removeMax() {
+        int id = elementMax();
+        remove(id);
+        return id;
+    }
+
+    /**
+     * Removes the first id with the smallest key.
+     * @return the removed id.
+     * @throws NoSuchElementException if empty.
+     */
+    public int removeMin() {
+        int id = elementMin();
+        remove(id);
+        return id;
+    }
+
+    /**
+     * Returns the id that removeMax would take after another one, for
+     * walking the queue from the largest key down.
+     * @param id a queued id, or -1 to start with the first one.
+     * @return the next id, or -1 if there is none.
+     */
+    public int nextMax(int id) {
+        if(id == NONE)
+            return isEmpty() ? NONE : elementMax();
+        if(next[id] != NONE)
+            return next[id];
+        for(int key = keys[id] - 1; key >= 0; key--)
+            if(head[key] != NONE)
+                return head[key];
+        return NONE;
+    }
+
+    /**
+     * Method that checks the queue against sorting.
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) {
+        WeissBucketQueue q = new WeissBucketQueue(10, 5);
+        q.add(3, 2);
+        q.add(7, 4);
+        q.add(5, 2);
+        q.add(1, 0);
+        System.out.print(q.elementMax() + " " + q.elementMin() + " " + q.nextMax(7) + " " + q.nextMax(3) + " "); //7 1 3 5
+        q.update(7, 1);
+        System.out.print(q.removeMax() + " " + q.removeMax() + " " + q.removeMin() + " "); //3 5 1
+        System.out.println(q.removeMax() + " " + q.isEmpty()); //7 true
+
+        //smallest-last style: take the max, lower its neighbors' keys by one
+        Random random = new Random(310);
+        int n = 5000;
+        int[] key = new int[n];
+        WeissBucketQueue big = new WeissBucketQueue(n, 100);
+        for(int id = 0; id < n; id++) {
+            key[id] = random.nextInt(101);
+            big.add(id, key[id]);
+        }
+        boolean sorted = true;
+        int count = 0;
+        while(!big.isEmpty()) {
+            int id = big.removeMax();
+            for(int other = 0; other < n; other++) {
+                sorted &= !big.contains(other) || key[other] <= key[id];
+            }
+            for(int k = 0; k < 3; k++) {
+                int other = random.nextInt(n);
+                if(big.contains(other) && key[other] > 0) {
+                    big.update(other, --key[other]);
+                }
+            }
+            count++;
+        }
+        System.out.println(sorted && count == n); //true
+    }
+}
\ No newline at end of file
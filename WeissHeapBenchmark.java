@@ -0,0 +1,156 @@
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ *  Times WeissPriorityQueue with 2, 4 and 8 children per node on two
+ *  workloads: filling and draining a large queue, and a Dijkstra-like
+ *  run where most operations are decreaseKey calls on queued elements.
+ *
+ *  <p>Run with: java WeissHeapBenchmark [elements] [updates per element] [seed] [repeats]
+ */
+class WeissHeapBenchmark {
+    /**
+     *  An element whose key can change while it is queued. Equal by id
+     *  only, so the queue finds it by id.
+     */
+    static class Item {
+        /**
+         *  The id, fixed for the item's life.
+         */
+        final int id;
+
+        /**
+         *  The key the queue orders by.
+         */
+        int key;
+
+        /**
+         *  Makes an item.
+         *
+         *  @param id the id
+         *  @param key the starting key
+         */
+        Item(int id, int key) {
+            this.id = id;
+            this.key = key;
+        }
+
+        /**
+         *  {@inheritDoc}
+         */
+        public boolean equals(Object o) {
+            return (o instanceof Item) && ((Item) o).id == id;
+        }
+
+        /**
+         *  {@inheritDoc}
+         */
+        public int hashCode() {
+            return id;
+        }
+    }
+
+    /**
+     *  Orders items by key, then id.
+     */
+    static final Comparator<Item> BY_KEY = (a, b) -> (a.key != b.key) ? Integer.compare(a.key, b.key) : Integer.compare(a.id, b.id);
+
+    /**
+     *  Adds n numbers in random order, then removes them all.
+     *
+     *  @param n the number of elements
+     *  @param arity children per heap node
+     *  @param seed the random seed
+     *  @return nanoseconds taken
+     */
+    static long fillAndDrain(int n, int arity, long seed) {
+        Random random = new Random(seed);
+        Integer[] values = new Integer[n];
+        for(int i = 0; i < n; i++) {
+            values[i] = random.nextInt();
+        }
+
+        long t0 = System.nanoTime();
+        WeissPriorityQueue<Integer> queue = new WeissPriorityQueue<>(arity);
+        for(Integer x : values) {
+            queue.add(x);
+        }
+        int previous = Integer.MIN_VALUE;
+        while(queue.size() > 0) {
+            int x = queue.remove();
+            if(x < previous) {
+                throw new IllegalStateException("out of order with arity " + arity);
+            }
+            previous = x;
+        }
+        return System.nanoTime() - t0;
+    }
+
+    /**
+     *  Queues n items, lowers random items' keys updates * n times, then
+     *  removes them all.
+     *
+     *  @param n the number of elements
+     *  @param updates decreaseKey calls per element
+     *  @param arity children per heap node
+     *  @param seed the random seed
+     *  @return nanoseconds taken
+     */
+    static long decreaseHeavy(int n, int updates, int arity, long seed) {
+        Random random = new Random(seed);
+        Item[] items = new Item[n];
+        for(int i = 0; i < n; i++) {
+            items[i] = new Item(i, Integer.MAX_VALUE / 2 + random.nextInt(Integer.MAX_VALUE / 2));
+        }
+        int[] pick = new int[updates * n];
+        int[] cut = new int[pick.length];
+        for(int k = 0; k < pick.length; k++) {
+            pick[k] = random.nextInt(n);
+            cut[k] = 1 + random.nextInt(1000);
+        }
+
+        long t0 = System.nanoTime();
+        WeissPriorityQueue<Item> queue = new WeissPriorityQueue<>(BY_KEY, arity);
+        for(Item item : items) {
+            queue.add(item);
+        }
+        for(int k = 0; k < pick.length; k++) {
+            Item item = items[pick[k]];
+            item.key -= cut[k];
+            queue.decreaseKey(item);
+        }
+        Item previous = null;
+        while(queue.size() > 0) {
+            Item item = queue.remove();
+            if(previous != null && BY_KEY.compare(item, previous) < 0) {
+                throw new IllegalStateException("out of order with arity " + arity);
+            }
+            previous = item;
+        }
+        return System.nanoTime() - t0;
+    }
+
+    /**
+     *  Main method that prints the best time of each workload for each arity.
+     *
+     *  @param args elements, updates per element, seed and repeats (all optional)
+     */
+    public static void main(String[] args) {
+        int n = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+        int updates = (args.length > 1) ? Integer.parseInt(args[1]) : 4;
+        long seed = (args.length > 2) ? Long.parseLong(args[2]) : 310;
+        int repeats = (args.length > 3) ? Integer.parseInt(args[3]) : 5;
+
+        System.out.printf("%d elements, %d decreaseKey calls each, best of %d runs (ms)%n", n, updates, repeats);
+        System.out.printf("%-8s %12s %12s%n", "arity", "fill+drain", "decrease");
+        for(int arity : new int[] {2, 4, 8}) {
+            long fill = Long.MAX_VALUE;
+            long decrease = Long.MAX_VALUE;
+            for(int r = 0; r < repeats; r++) {
+                fill = Math.min(fill, fillAndDrain(n, arity, seed + r));
+                decrease = Math.min(decrease, decreaseHeavy(n, updates, arity, seed + r));
+            }
+            System.out.printf("%-8d %12.2f %12.2f%n", arity, fill / 1e6, decrease / 1e6);
+        }
+    }
+}
\ No newline at end of file
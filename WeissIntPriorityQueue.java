@@ -0,0 +1,281 @@
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Indexed PriorityQueue of int ids (such as vertex indexes) with long
+ * keys, implemented via the binary heap like WeissPriorityQueue.
+ * The smallest key comes out first. Ids run from 0 to capacity-1; each
+ * id's key and heap position live in arrays indexed by the id, so there
+ * is no map, no boxing and no allocation after construction. int keys
+ * can be passed as they are.
+ */
+public class WeissIntPriorityQueue
+{
+    /**
+     * number of ids in heap.
+     */
+    private int currentSize;
+    /**
+     * The heap array of ids, from position 1.
+     */
+    private final int [] heap;
+    /**
+     * The key of each id.
+     */
+    private final long [] keys;
+    /**
+     * The heap position of each id, 0 if it is not in the queue.
+     */
+    private final int [] position;
+
+    /**
+     * Construct an empty PriorityQueue for ids below a capacity.
+     *
+     * @param capacity one more than the largest id that will be added
+     */
+    public WeissIntPriorityQueue(int capacity) {
+        currentSize = 0;
+        heap = new int[capacity + 1];
+        keys = new long[capacity];
+        position = new int[capacity];
+    }
+
+    /**
+     * Adds an id to this PriorityQueue.
+     * @param id an id that is not in the queue.
+     * @param key its key.
+     * @throws IllegalArgumentException if the id is already queued.
+     */
+    public void add(int id, long key) {
+        if(position[id] != 0)
+            throw new IllegalArgumentException("id " + id + " is already in the queue");
+        keys[id] = key;
+        heap[ ++currentSize ] = id;
+        position[id] = currentSize;
+        percolateUp( currentSize );
+    }
+
+    /**
+     * Returns the number of ids in this PriorityQueue.
+     * @return the number of ids in this PriorityQueue.
+     */
+    public int size() {
+        return currentSize;
+    }
+
+    /**
+     * Tests if this PriorityQueue is empty.
+     * @return true if the size is zero.
+     */
+    public boolean isEmpty() {
+        return currentSize == 0;
+    }
+
+    /**
+     * Make this PriorityQueue empty.
+     */
+    public void clear() {
+        for(int i = 1; i <= currentSize; i++)
+            position[heap[i]] = 0;
+        currentSize = 0;
+    }
+
+    /**
+     * Tests if an id is in the queue.
+     * @param id the id.
+     * @return true if it is queued.
+     */
+    public boolean contains(int id) {
+        return position[id] != 0;
+    }
+
+    /**
+     * Returns the heap position of an id that's in the queue.
+     * @param id the id.
+     * @return the position (1 is the front), or -1 if it is not queued.
+     */
+    public int getIndex(int id) {
+        return (position[id] == 0) ? -1 : position[id];
+    }
+
+    /**
+     * Returns the id at a heap position, for walking the queue in heap
+     * (not sorted) order.
+     * @param index the position, 1 to size().
+     * @return the id there.
+     */
+    public int get(int index) {
+        if(index < 1 || index > currentSize)
+            throw new IndexOutOfBoundsException("no position " + index);
+        return heap[index];
+    }
+
+    /**
+     * Returns the key of an id.
+     * @param id the id.
+     * @return its key, as last set while it was queued.
+     */
+    public long getKey(int id) {
+        return keys[id];
+    }
+
+    /**
+     * Returns the id with the smallest key.
+     * @return the smallest id.
+     * @throws NoSuchElementException if empty.
+     */
+    public int element() {
+        if(isEmpty())
+            throw new NoSuchElementException();
+        return heap[1];
+    }
+
+    /**
+     * Removes the id with the smallest key.
+     * @return the removed id.
+     * @throws NoSuchElementException if empty.
+     */
+    public int remove() {
+        int minId = element();
+        position[minId] = 0;
+        int last = heap[currentSize--];
+        if(currentSize > 0) {
+            heap[1] = last;
+            position[last] = 1;
+            percolateDown( 1 );
+        }
+        return minId;
+    }
+
+    /**
+     * Changes the key of a queued id, moving it up or down as needed.
+     * @param id the id.
+     * @param key its new key.
+     * @return true if the id was in the queue.
+     */
+    public boolean update(int id, long key) {
+        if(position[id] == 0)
+            return false;
+        long old = keys[id];
+        keys[id] = key;
+        if(key < old)
+            percolateUp( position[id] );
+        else
+            percolateDown( position[id] );
+        return true;
+    }
+
+    /**
+     * Lowers the key of a queued id (moves it toward the front).
+     * @param id the id.
+     * @param key its new key, not larger than the old one.
+     * @return true if the id was in the queue.
+     */
+    public boolean decreaseKey(int id, long key) {
+        if(position[id] == 0)
+            return false;
+        keys[id] = key;
+        percolateUp( position[id] );
+        return true;
+    }
+
+    /**
+     * Raises the key of a queued id (moves it toward the back).
+     * @param id the id.
+     * @param key its new key, not smaller than the old one.
+     * @return true if the id was in the queue.
+     */
+    public boolean increaseKey(int id, long key) {
+        if(position[id] == 0)
+            return false;
+        keys[id] = key;
+        percolateDown( position[id] );
+        return true;
+    }
+
+    /**
+     * Internal method to percolate up in the heap.
+     * @param hole the index at which the percolate begins.
+     */
+    private void percolateUp(int hole) {
+        int id = heap[hole];
+        long key = keys[id];
+
+        for( ; hole > 1 && key < keys[ heap[ hole / 2 ] ]; hole /= 2 ) {
+            heap[ hole ] = heap[ hole / 2 ];
+            position[ heap[ hole ] ] = hole;
+        }
+
+        heap[hole] = id;
+        position[id] = hole;
+    }
+
+    /**
+     * Internal method to percolate down in the heap.
+     * @param hole the index at which the percolate begins.
+     */
+    private void percolateDown(int hole) {
+        int child;
+        int id = heap[hole];
+        long key = keys[id];
+
+        for(;hole * 2 <= currentSize; hole = child)
+        {
+            child = hole * 2;
+            if( child != currentSize &&
+                    keys[ heap[ child + 1 ] ] < keys[ heap[ child ] ] )
+                child++;
+            if( keys[ heap[ child ] ] < key ) {
+                heap[ hole ] = heap[ child ];
+                position[ heap[ hole ] ] = hole;
+            }
+            else
+                break;
+        }
+        heap[hole] = id;
+        position[id] = hole;
+    }
+
+    /**
+     * Method that checks the queue against sorting.
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) {
+        WeissIntPriorityQueue q = new WeissIntPriorityQueue(10);
+        q.add(3, 30);
+        q.add(7, 10);
+        q.add(5, 20);
+        System.out.print(q.element() + " " + q.getIndex(7) + " " + q.getIndex(4) + " "); //7 1 -1
+        q.update(3, 5);
+        System.out.print(q.remove() + " " + q.remove() + " "); //3 7
+        q.increaseKey(5, 50);
+        System.out.println(q.remove() + " " + q.isEmpty()); //5 true
+
+        Random random = new Random(310);
+        int n = 5000;
+        WeissIntPriorityQueue big = new WeissIntPriorityQueue(n);
+        long[] key = new long[n];
+        for(int id = 0; id < n; id++) {
+            key[id] = random.nextInt(1000);
+            big.add(id, key[id]);
+        }
+        for(int k = 0; k < 3 * n; k++) {
+            int id = random.nextInt(n);
+            long next = random.nextInt(1000);
+            if(next < key[id]) big.decreaseKey(id, next);
+            else big.update(id, next);
+            key[id] = next;
+        }
+        boolean sorted = true;
+        long previous = Long.MIN_VALUE;
+        int count = 0;
+        while(!big.isEmpty()) {
+            int id = big.remove();
+            sorted &= key[id] >= previous && big.getIndex(id) == -1;
+            previous = key[id];
+            count++;
+        }
+        System.out.println(sorted && count == n); //true
+    }
+}
\ No newline at end of file
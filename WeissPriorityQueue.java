@@ -4,12 +4,19 @@ import java.util.NoSuchElementException;
 
 
 import java.util.HashMap;
+import java.util.Random;
 
 
 /**
  * PriorityQueue class implemented via the binary heap.
  * From your textbook (Weiss)
  *
+ * The heap can also be built with more children per node (a d-ary
+ * heap, see the arity constructors). Wider nodes make the heap
+ * shallower, so adds and decreaseKey move elements fewer times and
+ * each percolateDown compares siblings that sit next to each other
+ * in the array.
+ *
  * @param <T> generic
  */
 public class WeissPriorityQueue<T> extends WeissAbstractCollection<T>
@@ -18,6 +25,14 @@ public class WeissPriorityQueue<T> extends WeissAbstractCollection<T>
      * Max number of elements the queue can hold.
      */
     private static final int DEFAULT_CAPACITY = 100;
+    /**
+     * Number of children per node when none is given.
+     */
+    private static final int DEFAULT_ARITY = 2;
+    /**
+     * number of children of each node in the heap.
+     */
+    private final int arity;
     /**
      * number of elements in heap.
      */
@@ -32,7 +47,8 @@ public class WeissPriorityQueue<T> extends WeissAbstractCollection<T>
      */
     private Comparator<? super T> cmp;
     /**
-     * HashMap that stores the priority of each element in the queue.
+     * HashMap that stores the heap position of each element in the queue.
+     * Kept up to date as elements move, so it never needs rebuilding.
      */
     private HashMap<T, Integer> indexMap;
     /**
@@ -117,7 +133,65 @@ public class WeissPriorityQueue<T> extends WeissAbstractCollection<T>
         for(Student s : q) System.out.print(s.name + " "); //Cindi Robert
         System.out.println();
 
+        //positions stay right through many adds and removes
+        WeissPriorityQueue<Integer> nums = new WeissPriorityQueue<>();
+        Random random = new Random(310);
+        boolean consistent = true;
+        for(int k = 0; k < 20000; k++) {
+            if(nums.size() > 0 && random.nextInt(3) == 0) {
+                Integer min = nums.remove();
+                consistent &= nums.getIndex(min) == -1 && (nums.size() == 0 || min <= nums.element());
+            }
+            else {
+                nums.add(k * 7919 % 20011);
+            }
+        }
+        int position = 0;
+        for(Integer x : nums) {
+            consistent &= nums.getIndex(x) == ++position;
+        }
+        System.out.println(consistent); //true
+
+        //priority changes move one element instead of rebuilding the heap
+        Student[] students = new Student[200];
+        WeissPriorityQueue<Student> byName = new WeissPriorityQueue<>(comp);
+        for(int k = 0; k < students.length; k++) {
+            students[k] = new Student("G" + k, "N" + (k * 37 % 200 + 1000));
+            byName.add(students[k]);
+        }
+        for(int k = 0; k < 1000; k++) {
+            Student s = students[random.nextInt(students.length)];
+            String old = s.name;
+            s.name = "N" + (1000 + random.nextInt(1000));
+            if(s.name.compareTo(old) < 0) byName.decreaseKey(s);
+            else if(k % 2 == 0) byName.increaseKey(s);
+            else byName.update(s);
+        }
+        String previous = "";
+        boolean sorted = true;
+        while(byName.size() > 0) {
+            Student s = byName.remove();
+            sorted &= s.name.compareTo(previous) >= 0;
+            previous = s.name;
+        }
+        System.out.println(sorted); //true
 
+        //4-ary and 8-ary heaps hand out the same sorted order
+        for(int arity : new int[] {4, 8}) {
+            WeissPriorityQueue<Integer> wide = new WeissPriorityQueue<>(Comparator.reverseOrder(), arity);
+            for(int k = 0; k < 20000; k++) {
+                wide.add(k * 7919 % 20011);
+            }
+            boolean ordered = true;
+            int top = Integer.MAX_VALUE;
+            while(wide.size() > 0) {
+                int next = wide.remove();
+                ordered &= next <= top && wide.getIndex(next) == -1;
+                top = next;
+            }
+            System.out.print(ordered + " "); //true true
+        }
+        System.out.println();
     }
 
 
@@ -129,17 +203,16 @@ public class WeissPriorityQueue<T> extends WeissAbstractCollection<T>
      */
     public int getIndex(T x) {
 
-        if(indexMap.containsKey(x)) {
-            return indexMap.get(x);
-        }
-
-        return -1;
+        Integer index = indexMap.get(x);
+        return (index == null) ? -1 : index;
     }
 
     /**
      * Updates current object if the hashcodes are equal
      * and then updates the priorities in the queue if the priority
-     * of the current object has changed.
+     * of the current object has changed. The object is moved up or
+     * down from its own position in O(log n), the rest of the heap is
+     * left alone.
      *
      *
      * @param x object being updated
@@ -148,35 +221,88 @@ public class WeissPriorityQueue<T> extends WeissAbstractCollection<T>
      */
     public boolean update(T x) {
 
-        if(x == null) {
+        int index = replace(x);
+
+        if(index == -1) {
             return false;
         }
-        int index = getIndex(x);
+
+        if(percolateUp(index) == index) {
+            percolateDown(index);
+        }
+
+        return true;
+    }
+
+    /**
+     * Updates an object whose priority has gone up, so it can only move
+     * toward the front of the queue (a smaller key, for a min-heap).
+     * Cheaper than update since it only looks upward; if the priority
+     * actually went down, use update or increaseKey instead.
+     *
+     * @param x object being updated
+     * @return true or false based on if
+     *     the method was successful or not
+     */
+    public boolean decreaseKey(T x) {
+
+        int index = replace(x);
 
         if(index == -1) {
             return false;
         }
 
-        if(!x.equals(array[index])) {
+        percolateUp(index);
+        return true;
+    }
+
+    /**
+     * Updates an object whose priority has gone down, so it can only move
+     * toward the back of the queue (a larger key, for a min-heap).
+     * If the priority actually went up, use update or decreaseKey instead.
+     *
+     * @param x object being updated
+     * @return true or false based on if
+     *     the method was successful or not
+     */
+    public boolean increaseKey(T x) {
+
+        int index = replace(x);
+
+        if(index == -1) {
             return false;
         }
 
-        array[index] = x;
+        percolateDown(index);
+        return true;
+    }
 
-        buildHeap();
+    /**
+     * Puts an object in place of the equal object in the queue.
+     *
+     * @param x the new object
+     * @return its position in the heap, or -1 if no equal object is queued
+     */
+    private int replace(T x) {
 
-        return true;
+        if(x == null) {
+            return -1;
+        }
+        int index = getIndex(x);
+
+        if(index == -1 || !x.equals(array[index])) {
+            return -1;
+        }
+
+        array[index] = x;
+        return index;
     }
 
     /**
      * Construct an empty PriorityQueue.
      */
-    @SuppressWarnings("unchecked")
     public WeissPriorityQueue() {
-        currentSize = 0;
-        cmp = null;
-        array = (T[]) new Object[DEFAULT_CAPACITY + 1];
-        indexMap = new HashMap<>();
+        this(null, DEFAULT_ARITY);
     }
 
     /**
@@ -184,10 +310,33 @@ public class WeissPriorityQueue<T> extends WeissAbstractCollection<T>
      *
      * @param c comparator being used
      */
-    @SuppressWarnings("unchecked")
     public WeissPriorityQueue( Comparator<? super T> c) {
+        this(c, DEFAULT_ARITY);
+    }
+
+    /**
+     * Construct an empty d-ary PriorityQueue.
+     *
+     * @param arity children per node, 2 or more (4 and 8 suit large queues)
+     */
+    public WeissPriorityQueue(int arity) {
+        this(null, arity);
+    }
+
+    /**
+     * Construct an empty d-ary PriorityQueue with a specified comparator.
+     *
+     * @param c comparator being used, or null for the natural order
+     * @param arity children per node, 2 or more (4 and 8 suit large queues)
+     * @throws IllegalArgumentException if arity is less than 2
+     */
+    @SuppressWarnings("unchecked")
+    public WeissPriorityQueue( Comparator<? super T> c, int arity) {
+        if(arity < 2)
+            throw new IllegalArgumentException("arity must be at least 2: " + arity);
         currentSize = 0;
         cmp = c;
+        this.arity = arity;
         array = (T[]) new Object[DEFAULT_CAPACITY + 1];
         indexMap = new HashMap<>();
     }
@@ -200,6 +349,7 @@ public class WeissPriorityQueue<T> extends WeissAbstractCollection<T>
     @SuppressWarnings("unchecked")
     public WeissPriorityQueue(WeissCollection<? extends T> coll) {
         cmp = null;
+        arity = DEFAULT_ARITY;
         currentSize = coll.size();
         array = (T[]) new Object[(currentSize + 2) * 11 / 10];
         indexMap = new HashMap<>();
@@ -207,11 +357,8 @@ public class WeissPriorityQueue<T> extends WeissAbstractCollection<T>
         int i = 1;
         for (T item : coll) {
             array[i++] = item;
-            buildHeap();
-        }
-        for (int j = 1; j <= currentSize; j++) {
-            indexMap.put(array[j], j);
         }
+        buildHeap();
     }
     /**
      * Compares lhs and rhs using comparator if
@@ -238,18 +385,8 @@ public class WeissPriorityQueue<T> extends WeissAbstractCollection<T>
         if(currentSize + 1 == array.length)
             doubleArray();
 
-        int hole = ++currentSize;
-        array[ 0 ] = x;
-
-        for( ; compare( x, array[ hole / 2 ] ) < 0; hole /= 2 ) {
-            array[ hole ] = array[ hole / 2 ];
-        }
-
-        array[hole] = x;
-        indexMap.clear();
-        for(int i = 1; i <= currentSize; i++) {
-            indexMap.put(array[i], i);
-        }
+        array[ ++currentSize ] = x;
+        percolateUp( currentSize );
         return true;
     }
 
@@ -318,11 +455,12 @@ public class WeissPriorityQueue<T> extends WeissAbstractCollection<T>
      */
     public T remove() {
         T minItem = element();
-        array[1] = array[currentSize--];
-        percolateDown( 1 );
-        indexMap.clear();
-        for(int i = 1; i <= currentSize; i++) {
-            indexMap.put(array[i], i);
+        indexMap.remove(minItem);
+        T last = array[currentSize];
+        array[currentSize--] = null;
+        if(currentSize > 0) {
+            array[1] = last;
+            percolateDown( 1 );
         }
         return minItem;
     }
@@ -334,34 +472,67 @@ public class WeissPriorityQueue<T> extends WeissAbstractCollection<T>
      */
     private void buildHeap() {
         indexMap.clear();
-        for (int i = currentSize / 2; i > 0; i--) {
-            percolateDown(i);
-        }
         for (int j = 1; j <= currentSize; j++) {
             indexMap.put(array[j], j);
         }
+        for (int i = parent(currentSize); i > 0; i--) {
+            percolateDown(i);
+        }
     }
+
+    /**
+     * Returns the heap position of a node's parent.
+     * @param hole a position above 1.
+     * @return its parent's position (hole / 2 for a binary heap).
+     */
+    private int parent(int hole) {
+        return (hole - 2) / arity + 1;
+    }
+    /**
+     * Internal method to percolate up in the heap, recording the new
+     * position of every element it moves.
+     * @param hole the index at which the percolate begins.
+     * @return the index the element ended up at.
+     */
+    private int percolateUp(int hole) {
+        T x = array[hole];
+
+        for( ; hole > 1 && compare( x, array[ parent( hole ) ] ) < 0; hole = parent( hole ) ) {
+            array[ hole ] = array[ parent( hole ) ];
+            indexMap.put(array[ hole ], hole);
+        }
+
+        array[hole] = x;
+        indexMap.put(x, hole);
+        return hole;
+    }
+
     /**
-     * Internal method to percolate down in the heap.
+     * Internal method to percolate down in the heap, recording the new
+     * position of every element it moves.
      * @param hole the index at which the percolate begins.
      */
     private void percolateDown(int hole) {
         int child;
         T tmp = array[hole];
 
-        for(;hole * 2 <= currentSize; hole = child)
+        //the children of hole are arity * (hole - 1) + 2 up to arity * hole + 1
+        for(;arity * (hole - 1) + 2 <= currentSize; hole = child)
         {
-            child = hole * 2;
-            if( child != currentSize &&
-                    compare( array[ child + 1 ], array[ child ] ) < 0 )
-                child++;
+            child = arity * (hole - 1) + 2;
+            int last = Math.min(child + arity - 1, currentSize);
+            for( int sibling = child + 1; sibling <= last; sibling++ )
+                if( compare( array[ sibling ], array[ child ] ) < 0 )
+                    child = sibling;
             if( compare( array[ child ], tmp ) < 0 ) {
                 array[ hole ] = array[ child ];
+                indexMap.put(array[ hole ], hole);
             }
             else
                 break;
         }
         array[hole] = tmp;
+        indexMap.put(tmp, hole);
     }
 
     /**